@@ -0,0 +1,100 @@
+package lesson.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lesson.collection.DataStructureExample.Employee;
+
+/**
+ * List<Employee> against the columnar EmployeeStore.
+ *
+ * - scanList / scanStore: sum every id and count the Engineering rows
+ * - lookupStore: EmployeeStore.rowOf on a random id
+ * - buildStore: copy the list into a store; with -prof gc its gc.alloc.rate.norm is
+ *   roughly the store's heap footprint (the name bytes live off-heap on top of that)
+ *
+ * Names are fresh Strings, as they would be when loaded from a file. 5M rows need
+ * a few GB of heap:
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar EmployeeStoreBenchmark -prof gc
+ *   java -jar benchmarks/target/benchmarks.jar EmployeeStoreBenchmark -p rows=5000000 -jvmArgsAppend -Xmx4g
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EmployeeStoreBenchmark {
+
+    static final String[] DEPARTMENTS = {"Engineering", "Marketing", "Sales", "HR", "Finance", "Legal"};
+
+    @Param({"1000000"})
+    int rows;
+
+    List<Employee> employees;
+    EmployeeStore store;
+    long[] lookupIds;
+    int nextLookup;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(11);
+        employees = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            employees.add(new Employee(random.nextInt(rows), new String("Employee " + i),
+                    new String(DEPARTMENTS[random.nextInt(DEPARTMENTS.length)])));
+        }
+        store = EmployeeStore.of(employees);
+        lookupIds = new long[1024];
+        for (int i = 0; i < lookupIds.length; i++) {
+            lookupIds[i] = employees.get(random.nextInt(rows)).id();
+        }
+    }
+
+    @Benchmark
+    public long scanList() {
+        long sum = 0;
+        int engineers = 0;
+        for (Employee employee : employees) {
+            sum += employee.id();
+            if (employee.department().equals("Engineering")) {
+                engineers++;
+            }
+        }
+        return sum + engineers;
+    }
+
+    @Benchmark
+    public long scanStore() {
+        return store.sumOfIds() + store.countByDepartment().get("Engineering");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int lookupStore() {
+        return store.rowOf(lookupIds[nextLookup++ & (lookupIds.length - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public EmployeeStore buildStore() {
+        return EmployeeStore.of(employees);
+    }
+}
@@ -0,0 +1,89 @@
+package lesson.collection;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lesson.collection.HeroStructureSolution.Department;
+import lesson.collection.HeroStructureSolution.Hero;
+
+/**
+ * "Heroes in department A AND department B" over one million heroes in three of 40
+ * departments each: streaming over every hero's department list against the bitmap
+ * AND of HeroMembershipIndex. buildIndex is the one-off cost of the index.
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar HeroMembershipBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeroMembershipBenchmark {
+
+    static final int HEROES = 1_000_000;
+    static final int DEPARTMENTS = 40;
+
+    List<Hero> heroes;
+    HeroMembershipIndex index;
+    String first;
+    String second;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(3);
+        List<Department> departments = new ArrayList<>();
+        for (int d = 0; d < DEPARTMENTS; d++) {
+            departments.add(new Department(d, "Department " + d));
+        }
+        heroes = new ArrayList<>(HEROES);
+        for (long id = 0; id < HEROES; id++) {
+            List<Department> memberOf = new ArrayList<>();
+            for (int k = 0; k < 3; k++) {
+                memberOf.add(departments.get(random.nextInt(DEPARTMENTS)));
+            }
+            heroes.add(new Hero(id, "Hero", "No " + id, List.copyOf(new HashSet<>(memberOf))));
+        }
+        index = HeroMembershipIndex.of(heroes);
+        first = departments.get(1).name();
+        second = departments.get(2).name();
+        if (!streams().equals(bitmaps())) {
+            throw new IllegalStateException("Bitmap AND disagrees with the stream query");
+        }
+    }
+
+    @Benchmark
+    public List<Hero> streams() {
+        return heroes.stream()
+                .filter(hero -> hero.departments().stream().anyMatch(d -> d.name().equals(first)))
+                .filter(hero -> hero.departments().stream().anyMatch(d -> d.name().equals(second)))
+                .toList();
+    }
+
+    @Benchmark
+    public List<Hero> bitmaps() {
+        return index.inAll(first, second);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public HeroMembershipIndex buildIndex() {
+        return HeroMembershipIndex.of(heroes);
+    }
+}
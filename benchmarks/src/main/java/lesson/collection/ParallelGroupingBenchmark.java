@@ -0,0 +1,93 @@
+package lesson.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lesson.collection.DataStructureExample.Employee;
+
+/**
+ * Scaling of ParallelGrouping against sequential groupingBy and a parallel
+ * groupingByConcurrent, on ForkJoinPools of 1 to 32 threads.
+ *
+ * Only six departments are used so every key is hot, which is the case where a
+ * shared concurrent map stops scaling. Thread counts above the number of cores are
+ * still run, but cannot show a speed-up; sequential does not depend on threads.
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar ParallelGroupingBenchmark
+ *   java -jar benchmarks/target/benchmarks.jar ParallelGroupingBenchmark -p rows=5000000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelGroupingBenchmark {
+
+    static final String[] DEPARTMENTS = {"Engineering", "Marketing", "Sales", "HR", "Finance", "Legal"};
+
+    @Param({"1000000"})
+    int rows;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    int threads;
+
+    List<Employee> employees;
+    ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(5);
+        employees = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            employees.add(new Employee(i, "Employee " + i, DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]));
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public Map<String, List<Employee>> sequential() {
+        return employees.stream().collect(Collectors.groupingBy(Employee::department));
+    }
+
+    @Benchmark
+    public ConcurrentMap<String, List<Employee>> groupingByConcurrent() {
+        return pool.submit(() -> employees.parallelStream()
+                .collect(Collectors.groupingByConcurrent(Employee::department))).join();
+    }
+
+    @Benchmark
+    public Map<String, List<Employee>> partialMaps() {
+        return ParallelGrouping.groupingBy(employees, Employee::department, pool, false);
+    }
+
+    @Benchmark
+    public Map<String, List<Employee>> partialMapsOrdered() {
+        return ParallelGrouping.groupingBy(employees, Employee::department, pool, true);
+    }
+}
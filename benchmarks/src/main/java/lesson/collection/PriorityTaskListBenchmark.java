@@ -0,0 +1,112 @@
+package lesson.collection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lesson.collection.SeqCollectionExampleSolution.Task;
+
+/**
+ * The heap backed PriorityTaskList against the original sorted-ArrayList version
+ * (kept below as the baseline): add every task, then drain the queue.
+ * heapOneDuplicateId also queues two tasks sharing an id behind all the others; that
+ * pair must not slow down the removal of every other id.
+ *
+ * The baseline is quadratic; at 1M tasks one invocation takes minutes, so that size
+ * only runs when asked for:
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar PriorityTaskListBenchmark
+ *   java -jar benchmarks/target/benchmarks.jar PriorityTaskListBenchmark -p size=1000000
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class PriorityTaskListBenchmark {
+
+    // The original Exercise 4 solution: linear scan for the slot, then an array shift
+    static class SortedListPriorityTaskList {
+        private final List<Task> tasks = new ArrayList<>();
+
+        void addTask(Task task) {
+            int insertIndex = 0;
+            for (Task t : tasks) {
+                if (task.priority() >= t.priority()) {
+                    insertIndex++;
+                } else {
+                    break;
+                }
+            }
+            tasks.add(insertIndex, task);
+        }
+
+        Task removeHighestPriority() {
+            return tasks.isEmpty() ? null : tasks.removeFirst();
+        }
+    }
+
+    @Param({"1000", "100000"})
+    int size;
+
+    List<Task> tasks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        tasks = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tasks.add(new Task(i, "task-" + i, random.nextInt(10)));
+        }
+    }
+
+    @Benchmark
+    public int heap() {
+        var list = new SeqCollectionExampleSolution().new PriorityTaskList();
+        tasks.forEach(list::addTask);
+        int drained = 0;
+        while (list.removeHighestPriority() != null) {
+            drained++;
+        }
+        return drained;
+    }
+
+    @Benchmark
+    public int heapOneDuplicateId() {
+        var list = new SeqCollectionExampleSolution().new PriorityTaskList();
+        tasks.forEach(list::addTask);
+        list.addTask(new Task(-1, "duplicate", Integer.MAX_VALUE));
+        list.addTask(new Task(-1, "duplicate", Integer.MAX_VALUE));
+        int drained = 0;
+        while (list.removeHighestPriority() != null) {
+            drained++;
+        }
+        return drained;
+    }
+
+    @Benchmark
+    public int sortedList() {
+        var list = new SortedListPriorityTaskList();
+        tasks.forEach(list::addTask);
+        int drained = 0;
+        while (list.removeHighestPriority() != null) {
+            drained++;
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,204 @@
+package lesson.collection;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The sequenced-collection operations used in SeqCollectionExample, next to their
+ * usual alternatives.
+ *
+ * Every benchmark pairs an insert with a removal so the collection keeps its size
+ * across invocations, which makes the size parameter meaningful for O(n) operations
+ * such as ArrayList.addFirst.
+ *
+ * Build and run with the GC profiler for allocation rates:
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar SequencedCollectionBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SequencedCollectionBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    int size;
+
+    ArrayList<Integer> arrayList;
+    LinkedList<Integer> linkedList;
+    ArrayDeque<Integer> arrayDeque;
+    RingBuffer<Integer> ringBuffer;
+    LinkedHashMap<Integer, Integer> linkedHashMap;
+    TreeMap<Integer, Integer> treeMap;
+    int nextKey;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        arrayList = new ArrayList<>(size + 1);
+        linkedList = new LinkedList<>();
+        arrayDeque = new ArrayDeque<>(size + 1);
+        ringBuffer = RingBuffer.growable(size + 1);
+        linkedHashMap = new LinkedHashMap<>();
+        treeMap = new TreeMap<>();
+        for (int i = 0; i < size; i++) {
+            arrayList.add(i);
+            linkedList.add(i);
+            arrayDeque.add(i);
+            ringBuffer.add(i);
+            linkedHashMap.put(i, i);
+            treeMap.put(i, i);
+        }
+        nextKey = size;
+    }
+
+    // --- addFirst: ArrayList shifts the whole array, the others do not
+
+    @Benchmark
+    public Integer arrayListAddFirst() {
+        arrayList.addFirst(nextKey);
+        return arrayList.removeLast();
+    }
+
+    @Benchmark
+    public Integer linkedListAddFirst() {
+        linkedList.addFirst(nextKey);
+        return linkedList.removeLast();
+    }
+
+    @Benchmark
+    public Integer arrayDequeAddFirst() {
+        arrayDeque.addFirst(nextKey);
+        return arrayDeque.removeLast();
+    }
+
+    @Benchmark
+    public Integer ringBufferAddFirst() {
+        ringBuffer.addFirst(nextKey);
+        return ringBuffer.removeLast();
+    }
+
+    // --- removeFirst: again O(n) for ArrayList
+
+    @Benchmark
+    public Integer arrayListRemoveFirst() {
+        arrayList.addLast(nextKey);
+        return arrayList.removeFirst();
+    }
+
+    @Benchmark
+    public Integer arrayDequeRemoveFirst() {
+        arrayDeque.addLast(nextKey);
+        return arrayDeque.removeFirst();
+    }
+
+    @Benchmark
+    public Integer ringBufferRemoveFirst() {
+        ringBuffer.addLast(nextKey);
+        return ringBuffer.removeFirst();
+    }
+
+    // --- putFirst / pollFirstEntry on maps
+
+    @Benchmark
+    public Map.Entry<Integer, Integer> linkedHashMapPutFirst() {
+        int key = nextKey++;
+        linkedHashMap.putFirst(key, key);
+        return linkedHashMap.pollLastEntry();
+    }
+
+    @Benchmark
+    public Map.Entry<Integer, Integer> linkedHashMapPollFirstEntry() {
+        int key = nextKey++;
+        linkedHashMap.putLast(key, key);
+        return linkedHashMap.pollFirstEntry();
+    }
+
+    @Benchmark
+    public Map.Entry<Integer, Integer> treeMapPollFirstEntry() {
+        // keys only grow, so put lands at the end like putLast
+        int key = nextKey++;
+        treeMap.put(key, key);
+        return treeMap.pollFirstEntry();
+    }
+
+    // --- reverse iteration: a reversed() view versus copying
+
+    @Benchmark
+    public long arrayListReversedView() {
+        long sum = 0;
+        for (Integer value : arrayList.reversed()) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long arrayListReversedCopy() {
+        List<Integer> copy = new ArrayList<>(arrayList);
+        Collections.reverse(copy);
+        long sum = 0;
+        for (Integer value : copy) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long arrayDequeDescendingIterator() {
+        long sum = 0;
+        for (Iterator<Integer> it = arrayDeque.descendingIterator(); it.hasNext(); ) {
+            sum += it.next();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long ringBufferReversedView() {
+        long sum = 0;
+        for (Integer value : ringBuffer.reversed()) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long linkedHashMapReversedView() {
+        long sum = 0;
+        for (Integer value : linkedHashMap.sequencedValues().reversed()) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long treeMapDescendingMap() {
+        long sum = 0;
+        for (Integer value : treeMap.descendingMap().values()) {
+            sum += value;
+        }
+        return sum;
+    }
+}
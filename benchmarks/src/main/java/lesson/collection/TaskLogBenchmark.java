@@ -0,0 +1,94 @@
+package lesson.collection;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lesson.collection.SeqCollectionExampleSolution.Task;
+import lesson.collection.SeqCollectionExampleSolution.TaskManager;
+
+/**
+ * Cost of making TaskManager.addTask durable through TaskWriteAheadLog.
+ *
+ * Runs every add against an in-memory manager and against logged managers with
+ * different fsync intervals, from one thread and from 16. Throughput shows how much
+ * group commit recovers as writers are added; sample time shows the latency it costs,
+ * which is bounded by the fsync interval plus one fsync. Results depend heavily on
+ * the disk, so run it on the machine you care about (java.io.tmpdir by default):
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar TaskLogBenchmark
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskLogBenchmark {
+
+    /** Microseconds between fsyncs; -1 means no log at all. */
+    @Param({"-1", "0", "500", "2000"})
+    long fsyncIntervalMicros;
+
+    Path directory;
+    TaskManager manager;
+    final AtomicInteger nextId = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SeqCollectionExampleSolution solution = new SeqCollectionExampleSolution();
+        if (fsyncIntervalMicros < 0) {
+            manager = solution.new TaskManager();
+        } else {
+            directory = Files.createTempDirectory("task-log-benchmark");
+            manager = solution.new TaskManager(directory, Duration.ofNanos(fsyncIntervalMicros * 1_000));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+        if (directory != null) {
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void addTaskOneWriter() {
+        addNext();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void addTaskSixteenWriters() {
+        addNext();
+    }
+
+    private void addNext() {
+        int id = nextId.getAndIncrement();
+        manager.addTask(new Task(id, "Task " + id, id & 7));
+    }
+}
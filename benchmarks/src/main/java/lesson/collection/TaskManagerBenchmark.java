@@ -0,0 +1,113 @@
+package lesson.collection;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import lesson.collection.SeqCollectionExampleSolution.Task;
+import lesson.collection.SeqCollectionExampleSolution.TaskManager;
+
+/**
+ * addTask throughput of the concurrent TaskManager with 1, 8 and 64 writer threads.
+ * The original LinkedHashMap version behind one global lock runs alongside as the
+ * baseline, since that is the only way to share it safely. Both managers start empty
+ * every iteration, so they do not grow across the whole run.
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar TaskManagerBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TaskManagerBenchmark {
+
+    static final int PRIORITIES = 10;
+
+    // The original Exercise 5 storage, made thread-safe the simple way
+    static class SynchronizedTaskManager {
+        private final LinkedHashMap<Integer, LinkedHashSet<Task>> tasksByPriority = new LinkedHashMap<>();
+
+        synchronized void addTask(Task task) {
+            tasksByPriority.computeIfAbsent(task.priority(), k -> new LinkedHashSet<>()).add(task);
+        }
+    }
+
+    /** Hands each writer thread its own range of ids, so no counter is shared. */
+    @State(Scope.Thread)
+    public static class Writer {
+        private static final AtomicInteger WRITERS = new AtomicInteger();
+
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            next = WRITERS.getAndIncrement() << 24;
+        }
+
+        Task nextTask() {
+            int id = next++;
+            return new Task(id, "task", id % PRIORITIES);
+        }
+    }
+
+    TaskManager concurrent;
+    SynchronizedTaskManager synchronizedMap;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        concurrent = new SeqCollectionExampleSolution().new TaskManager();
+        synchronizedMap = new SynchronizedTaskManager();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void concurrentOneWriter(Writer writer) {
+        concurrent.addTask(writer.nextTask());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void concurrentEightWriters(Writer writer) {
+        concurrent.addTask(writer.nextTask());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void concurrentSixtyFourWriters(Writer writer) {
+        concurrent.addTask(writer.nextTask());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void synchronizedOneWriter(Writer writer) {
+        synchronizedMap.addTask(writer.nextTask());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void synchronizedEightWriters(Writer writer) {
+        synchronizedMap.addTask(writer.nextTask());
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void synchronizedSixtyFourWriters(Writer writer) {
+        synchronizedMap.addTask(writer.nextTask());
+    }
+}
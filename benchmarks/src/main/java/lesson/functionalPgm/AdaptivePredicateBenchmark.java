@@ -0,0 +1,94 @@
+package lesson.functionalPgm;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A validation chain written in an unlucky order (a regex that rarely fails first, the
+ * selective domain check last) as a plain and-chain, hand-ordered, and adaptive.
+ *
+ * The adaptive chain should land close to the hand-ordered one; the gap is the cost of
+ * sampling.
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar AdaptivePredicateBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AdaptivePredicateBenchmark {
+
+    static final int INPUTS = 1024;
+
+    String[] inputs;
+    Predicate<String> writtenOrder;
+    Predicate<String> handOrdered;
+    Predicate<String> adaptive;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Pattern email = Pattern.compile("^[\\w.+-]+@[\\w-]+(\\.[\\w-]+)+$");
+        Predicate<String> wellFormed = text -> email.matcher(text).matches();
+        Predicate<String> shortText = text -> text.length() <= 100;
+        Predicate<String> companyDomain = text -> text.endsWith("@example.com");
+
+        inputs = new String[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            inputs[i] = i % 10 == 0 ? "user" + i + "@example.com" : "user" + i + "@mail" + (i % 7) + ".org";
+        }
+        Predicate<String> notNull = Objects::nonNull;
+        writtenOrder = notNull.and(wellFormed).and(shortText).and(companyDomain);
+        handOrdered = notNull.and(companyDomain).and(shortText).and(wellFormed);
+        adaptive = AdaptivePredicate.<String>builder()
+                .guard(Objects::nonNull)
+                .check("wellFormed", wellFormed)
+                .check("short", shortText)
+                .check("companyDomain", companyDomain)
+                .build();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUTS)
+    public int writtenOrder() {
+        return count(writtenOrder);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUTS)
+    public int handOrdered() {
+        return count(handOrdered);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(INPUTS)
+    public int adaptive() {
+        return count(adaptive);
+    }
+
+    private int count(Predicate<String> predicate) {
+        int valid = 0;
+        for (String input : inputs) {
+            if (predicate.test(input)) {
+                valid++;
+            }
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,113 @@
+package lesson.functionalPgm;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Pricing a batch of items through the Discount chain, per item.
+ *
+ * - boxedChain:     Function<Double, Double> stages joined with andThen, as in Discount
+ * - primitiveChain: the same stages as DoubleUnaryOperator, still one call per stage
+ * - foldedChain:    DiscountChain, one multiply for the whole chain
+ * - foldedCents:    DiscountChain on long cents, rounded once
+ *
+ * The boxed version allocates a Double per stage unless escape analysis removes it;
+ * run with -prof gc to see which.
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar DiscountBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DiscountBenchmark {
+
+    static final int ITEMS = 1024;
+
+    /** Number of 5% stages in the chain. */
+    @Param({"2", "8"})
+    int stages;
+
+    double[] prices;
+    long[] cents;
+    Function<Double, Double> boxed;
+    DoubleUnaryOperator primitive;
+    DiscountChain folded;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(19);
+        prices = new double[ITEMS];
+        cents = new long[ITEMS];
+        for (int i = 0; i < ITEMS; i++) {
+            cents[i] = 100 + random.nextInt(200_000);
+            prices[i] = cents[i] / 100.0;
+        }
+        boxed = Discount.applyJuneDiscount;
+        primitive = price -> price - (price * 0.05);
+        folded = Discount.juneDiscount;
+        for (int i = 1; i < stages; i++) {
+            boxed = boxed.andThen(i % 2 == 0 ? Discount.applyJuneDiscount : Discount.applySeven7Discount);
+            primitive = primitive.andThen(price -> price - (price * 0.05));
+            folded = folded.then(Discount.seven7Discount);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public double boxedChain() {
+        double total = 0;
+        for (double price : prices) {
+            total += boxed.apply(price);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public double primitiveChain() {
+        double total = 0;
+        for (double price : prices) {
+            total += primitive.applyAsDouble(price);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public double foldedChain() {
+        double total = 0;
+        for (double price : prices) {
+            total += folded.applyAsDouble(price);
+        }
+        return total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public long foldedCents() {
+        long total = 0;
+        for (long price : cents) {
+            total += folded.applyToCents(price);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,107 @@
+package lesson.functionalPgm;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Filtering one million random ints, per element.
+ *
+ * - boxedStream: List<Integer>.stream().filter(predicate).toList(), as in Filter
+ * - intPredicate: BulkFilter with an IntPredicate, one call per element
+ * - scalar:       BulkFilter's branch-free loop for the condition
+ * - vector:       BulkFilter on the Vector API (scalar when the JVM has no AVX-512)
+ *
+ * The fork adds jdk.incubator.vector; compare with -jvmArgsAppend -XX:UseAVX=2.
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar FilterBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@State(Scope.Thread)
+public class FilterBenchmark {
+
+    static final int SIZE = 1 << 20;
+
+    @Param({"even", "multipleOf3", "between"})
+    String condition;
+
+    int[] values;
+    int[] target;
+    List<Integer> boxed;
+    BulkFilter.Condition bulk;
+    Predicate<Integer> predicate;
+    IntPredicate intPredicate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(23);
+        values = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            values[i] = random.nextInt();
+        }
+        target = new int[SIZE];
+        boxed = Arrays.stream(values).boxed().toList();
+        switch (condition) {
+            case "even" -> {
+                bulk = BulkFilter.even();
+                predicate = num -> num % 2 == 0;
+                intPredicate = num -> num % 2 == 0;
+            }
+            case "multipleOf3" -> {
+                bulk = BulkFilter.multipleOf(3);
+                predicate = num -> num % 3 == 0;
+                intPredicate = num -> num % 3 == 0;
+            }
+            default -> {
+                bulk = BulkFilter.between(-1_000_000_000, 1_000_000_000);
+                predicate = num -> num >= -1_000_000_000 && num <= 1_000_000_000;
+                intPredicate = num -> num >= -1_000_000_000 && num <= 1_000_000_000;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public List<Integer> boxedStream() {
+        return boxed.stream().filter(predicate).toList();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int intPredicate() {
+        return BulkFilter.filter(values, 0, SIZE, target, intPredicate);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int scalar() {
+        return BulkFilter.filterScalar(values, 0, SIZE, target, bulk);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public int vector() {
+        return BulkFilter.filter(values, target, bulk);
+    }
+}
@@ -0,0 +1,115 @@
+package lesson.functionalPgm;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * andThen / and chains against the same stages fused by Pipeline, at several depths.
+ *
+ * Stages cycle through four different lambdas, as a chain assembled from
+ * configuration would, so call sites see several receiver types. Before measuring,
+ * setUp also runs chains of other shapes so the shared call sites inside
+ * Function.andThen and Predicate.and are as polluted as in a real application.
+ *   mvn -B package
+ *   java -jar benchmarks/target/benchmarks.jar PipelineBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PipelineBenchmark {
+
+    @Param({"2", "8", "32"})
+    int depth;
+
+    Function<Integer, Integer> nested;
+    Function<Integer, Integer> fused;
+    Predicate<Integer> nestedAnd;
+    Predicate<Integer> fusedAnd;
+    int input;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Function<Integer, Integer>[] FUNCTIONS = new Function[] {
+            (Function<Integer, Integer>) x -> x + 1,
+            (Function<Integer, Integer>) x -> x * 3,
+            (Function<Integer, Integer>) x -> x ^ 0x5bd1,
+            (Function<Integer, Integer>) x -> x - 7
+    };
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Predicate<Integer>[] PREDICATES = new Predicate[] {
+            (Predicate<Integer>) x -> x != Integer.MIN_VALUE,
+            (Predicate<Integer>) x -> x != 42,
+            (Predicate<Integer>) x -> (x & 0x40000000) == 0 || x < 0,
+            (Predicate<Integer>) x -> x != -1
+    };
+
+    @Setup(Level.Trial)
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public void setUp() {
+        // pollute the profiles of the shared andThen/and call sites with other shapes
+        for (int shape = 0; shape < 4; shape++) {
+            Function<Integer, Integer> chain = FUNCTIONS[shape];
+            Predicate<Integer> test = PREDICATES[shape];
+            for (int i = 1; i < 5; i++) {
+                chain = chain.andThen(FUNCTIONS[(shape + i) % 4]);
+                test = test.and(PREDICATES[(shape + i) % 4]);
+            }
+            for (int i = 0; i < 20_000; i++) {
+                chain.apply(i);
+                test.test(i);
+            }
+        }
+
+        nested = FUNCTIONS[0];
+        nestedAnd = PREDICATES[0];
+        Pipeline<Integer, Integer> pipeline = Pipeline.<Integer>from().map(FUNCTIONS[0]);
+        Predicate<Integer>[] predicates = new Predicate[depth];
+        predicates[0] = PREDICATES[0];
+        for (int i = 1; i < depth; i++) {
+            nested = nested.andThen(FUNCTIONS[i % 4]);
+            pipeline = pipeline.map(FUNCTIONS[i % 4]);
+            nestedAnd = nestedAnd.and(PREDICATES[i % 4]);
+            predicates[i] = PREDICATES[i % 4];
+        }
+        fused = pipeline.fuse();
+        fusedAnd = Pipeline.allOf(predicates);
+        input = 12345;
+    }
+
+    @Benchmark
+    public Integer andThenChain() {
+        return nested.apply(input);
+    }
+
+    @Benchmark
+    public Integer fusedChain() {
+        return fused.apply(input);
+    }
+
+    @Benchmark
+    public boolean predicateAndChain() {
+        return nestedAnd.test(input);
+    }
+
+    @Benchmark
+    public boolean fusedAllOf() {
+        return fusedAnd.test(input);
+    }
+}
@@ -0,0 +1,370 @@
+package lesson.collection;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Compressed bitmap of non-negative ints in the style of Roaring bitmaps.
+ *
+ * Values are split on their high 16 bits into containers, kept sorted by that key.
+ * A container holds the low 16 bits either as
+ * - a sorted char[] while it has at most 4096 values (sparse), or
+ * - a 1024-word long[] bitmap once it is denser than that.
+ * A 4096-value array and a bitmap are both 8KB, which is where the switch happens.
+ *
+ * and/or/andNot return new bitmaps and work container by container: word-wise on
+ * bitmaps, merge-wise on arrays. Not thread-safe.
+ */
+final class CompressedBitmap {
+
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+
+    private char[] keys = new char[4];
+    private Object[] containers = new Object[4];
+    private int[] cardinalities = new int[4];
+    private int containerCount;
+
+    static CompressedBitmap of(int... values) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int value : values) {
+            bitmap.add(value);
+        }
+        return bitmap;
+    }
+
+    void add(int value) {
+        checkValue(value);
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+        int index = indexOfKey(key);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, key, new char[] {low}, 1);
+            return;
+        }
+        Object container = containers[index];
+        if (container instanceof long[] words) {
+            long mask = 1L << low;
+            if ((words[low >>> 6] & mask) == 0) {
+                words[low >>> 6] |= mask;
+                cardinalities[index]++;
+            }
+            return;
+        }
+        char[] values = (char[]) container;
+        int size = cardinalities[index];
+        int position = Arrays.binarySearch(values, 0, size, low);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (size == ARRAY_LIMIT) {
+            long[] words = toWords(values, size);
+            words[low >>> 6] |= 1L << low;
+            containers[index] = words;
+            cardinalities[index] = size + 1;
+            return;
+        }
+        if (size == values.length) {
+            values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, size * 2));
+            containers[index] = values;
+        }
+        System.arraycopy(values, position, values, position + 1, size - position);
+        values[position] = low;
+        cardinalities[index] = size + 1;
+    }
+
+    void remove(int value) {
+        if (value < 0) {
+            return;
+        }
+        int index = indexOfKey((char) (value >>> 16));
+        if (index < 0) {
+            return;
+        }
+        char low = (char) value;
+        Object container = containers[index];
+        if (container instanceof long[] words) {
+            long mask = 1L << low;
+            if ((words[low >>> 6] & mask) != 0) {
+                words[low >>> 6] &= ~mask;
+                if (--cardinalities[index] == ARRAY_LIMIT) {
+                    containers[index] = toValues(words, ARRAY_LIMIT);
+                }
+            }
+        } else {
+            char[] values = (char[]) container;
+            int size = cardinalities[index];
+            int position = Arrays.binarySearch(values, 0, size, low);
+            if (position >= 0) {
+                System.arraycopy(values, position + 1, values, position, size - position - 1);
+                cardinalities[index] = size - 1;
+            }
+        }
+        if (cardinalities[index] == 0) {
+            removeContainer(index);
+        }
+    }
+
+    boolean contains(int value) {
+        if (value < 0) {
+            return false;
+        }
+        int index = indexOfKey((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        if (containers[index] instanceof long[] words) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) containers[index], 0, cardinalities[index], low) >= 0;
+    }
+
+    int cardinality() {
+        int total = 0;
+        for (int i = 0; i < containerCount; i++) {
+            total += cardinalities[i];
+        }
+        return total;
+    }
+
+    boolean isEmpty() {
+        return containerCount == 0;
+    }
+
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < containerCount; i++) {
+            int high = keys[i] << 16;
+            if (containers[i] instanceof long[] words) {
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) containers[i];
+                for (int v = 0; v < cardinalities[i]; v++) {
+                    action.accept(high | values[v]);
+                }
+            }
+        }
+    }
+
+    CompressedBitmap and(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < containerCount && j < other.containerCount) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendLow(keys[i], andContainers(containers[i], cardinalities[i],
+                        other.containers[j], other.cardinalities[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    CompressedBitmap or(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < containerCount || j < other.containerCount) {
+            if (j == other.containerCount || (i < containerCount && keys[i] < other.keys[j])) {
+                result.appendCopy(keys[i], containers[i], cardinalities[i]);
+                i++;
+            } else if (i == containerCount || keys[i] > other.keys[j]) {
+                result.appendCopy(other.keys[j], other.containers[j], other.cardinalities[j]);
+                j++;
+            } else {
+                long[] words = wordsOf(containers[i], cardinalities[i], true);
+                orInto(words, other.containers[j], other.cardinalities[j]);
+                result.appendLow(keys[i], words);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Values in this bitmap that are not in the other one.
+     */
+    CompressedBitmap andNot(CompressedBitmap other) {
+        CompressedBitmap result = new CompressedBitmap();
+        int j = 0;
+        for (int i = 0; i < containerCount; i++) {
+            while (j < other.containerCount && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.containerCount && other.keys[j] == keys[i]) {
+                long[] words = wordsOf(containers[i], cardinalities[i], true);
+                long[] removed = wordsOf(other.containers[j], other.cardinalities[j], false);
+                for (int w = 0; w < BITMAP_WORDS; w++) {
+                    words[w] &= ~removed[w];
+                }
+                result.appendLow(keys[i], words);
+            } else {
+                result.appendCopy(keys[i], containers[i], cardinalities[i]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        forEach(value -> sb.append(sb.length() > 1 ? ", " : "").append(value));
+        return sb.append('}').toString();
+    }
+
+    private static Object andContainers(Object left, int leftSize, Object right, int rightSize) {
+        if (left instanceof char[] a && right instanceof char[] b) {
+            char[] out = new char[Math.min(leftSize, rightSize)];
+            int n = 0;
+            for (int i = 0, j = 0; i < leftSize && j < rightSize; ) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    out[n++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+        if (left instanceof char[] || right instanceof char[]) {
+            // filter the sparse side against the dense one
+            char[] values = (char[]) (left instanceof char[] ? left : right);
+            int size = left instanceof char[] ? leftSize : rightSize;
+            long[] words = (long[]) (left instanceof char[] ? right : left);
+            char[] out = new char[size];
+            int n = 0;
+            for (int i = 0; i < size; i++) {
+                if ((words[values[i] >>> 6] & (1L << values[i])) != 0) {
+                    out[n++] = values[i];
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+        long[] a = (long[]) left;
+        long[] b = (long[]) right;
+        long[] words = new long[BITMAP_WORDS];
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            words[w] = a[w] & b[w];
+        }
+        return words;
+    }
+
+    private static void orInto(long[] words, Object container, int size) {
+        if (container instanceof long[] other) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] |= other[w];
+            }
+        } else {
+            char[] values = (char[]) container;
+            for (int i = 0; i < size; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+        }
+    }
+
+    private static long[] wordsOf(Object container, int size, boolean copy) {
+        if (container instanceof long[] words) {
+            return copy ? words.clone() : words;
+        }
+        return toWords((char[]) container, size);
+    }
+
+    private static long[] toWords(char[] values, int size) {
+        long[] words = new long[BITMAP_WORDS];
+        for (int i = 0; i < size; i++) {
+            words[values[i] >>> 6] |= 1L << values[i];
+        }
+        return words;
+    }
+
+    private static char[] toValues(long[] words, int cardinality) {
+        char[] values = new char[cardinality];
+        int n = 0;
+        for (int w = 0; w < BITMAP_WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[n++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+
+    // appends a freshly computed container, picking the cheaper representation
+    private void appendLow(char key, Object container) {
+        if (container instanceof char[] values) {
+            if (values.length > 0) {
+                appendContainer(key, values, values.length);
+            }
+            return;
+        }
+        long[] words = (long[]) container;
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        if (cardinality == 0) {
+            return;
+        }
+        appendContainer(key, cardinality <= ARRAY_LIMIT ? toValues(words, cardinality) : words, cardinality);
+    }
+
+    private void appendCopy(char key, Object container, int cardinality) {
+        Object copy = container instanceof long[] words ? words.clone() : Arrays.copyOf((char[]) container, cardinality);
+        appendContainer(key, copy, cardinality);
+    }
+
+    private void appendContainer(char key, Object container, int cardinality) {
+        insertContainer(containerCount, key, container, cardinality);
+    }
+
+    private void insertContainer(int index, char key, Object container, int cardinality) {
+        if (containerCount == keys.length) {
+            keys = Arrays.copyOf(keys, containerCount * 2);
+            containers = Arrays.copyOf(containers, containerCount * 2);
+            cardinalities = Arrays.copyOf(cardinalities, containerCount * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, containerCount - index);
+        System.arraycopy(containers, index, containers, index + 1, containerCount - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, containerCount - index);
+        keys[index] = key;
+        containers[index] = container;
+        cardinalities[index] = cardinality;
+        containerCount++;
+    }
+
+    private void removeContainer(int index) {
+        int moved = containerCount - index - 1;
+        System.arraycopy(keys, index + 1, keys, index, moved);
+        System.arraycopy(containers, index + 1, containers, index, moved);
+        System.arraycopy(cardinalities, index + 1, cardinalities, index, moved);
+        containers[--containerCount] = null;
+    }
+
+    private int indexOfKey(char key) {
+        return Arrays.binarySearch(keys, 0, containerCount, key);
+    }
+
+    private static void checkValue(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Only non-negative values can be stored, got " + value);
+        }
+    }
+}
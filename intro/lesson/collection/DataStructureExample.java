@@ -1,11 +1,23 @@
 package lesson.collection;
 
+import static exercise.utils.SolutionValidation.assertWithPredicate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 public class DataStructureExample {
 
@@ -33,10 +45,44 @@ public class DataStructureExample {
     private List<Employee> allEmployees = createRandomEmployees();
 
     Map<String, List<Employee>> groupEmployeesByDepartment() {
-        return null;
+        // group on dictionary codes (array index), decode the names only for the result
+        DepartmentDictionary dictionary = new DepartmentDictionary();
+        List<List<Employee>> byCode = new ArrayList<>();
+        for (Employee employee : allEmployees) {
+            int code = dictionary.encode(employee.department());
+            while (byCode.size() <= code) {
+                byCode.add(null);
+            }
+            if (byCode.get(code) == null) {
+                byCode.set(code, new ArrayList<>());
+            }
+            byCode.get(code).add(employee);
+        }
+        Map<String, List<Employee>> grouped = new LinkedHashMap<>();
+        for (int code = 0; code < byCode.size(); code++) {
+            if (byCode.get(code) != null) {
+                grouped.put(dictionary.decode(code), byCode.get(code));
+            }
+        }
+        return grouped;
+    }
+
+    // large employee lists: per-thread partial maps merged in order, on the caller's pool
+    Map<String, List<Employee>> groupEmployeesByDepartmentParallel(List<Employee> employees, ForkJoinPool pool) {
+        return ParallelGrouping.groupingBy(employees, Employee::department, pool, true);
+    }
+
+    // multi-GB exports: streamed through a direct buffer, deduplicated by id (first wins) as they are read
+    Map<String, List<Employee>> groupUniqueEmployeesByDepartment(Path csv) {
+        return new EmployeeCsvLoader().groupUniqueByDepartment(csv);
     }
 
     List<Employee> getUniqueEmployeesByIdAsList() {
+        // primitive long hash set + radix sort, no Long keys or comparator calls
+        return EmployeeDedup.uniqueSortedById(allEmployees, EmployeeDedup.MergePolicy.KEEP_FIRST);
+    }
+
+    List<Employee> getUniqueEmployeesByIdAsListWithStreams() {
 
         // TODO: Will this work?
         var employeesById = allEmployees.stream().collect(Collectors.groupingBy(Employee::id));
@@ -60,12 +106,28 @@ public class DataStructureExample {
                 }).toList();
     }
 
+    // dashboards: approximate distinct ids in 16KB, about 0.8% standard error
+    long approximateUniqueEmployeeCount() {
+        HyperLogLog counter = HyperLogLog.withPrecision(14);
+        allEmployees.forEach(employee -> counter.add(employee.id()));
+        return counter.estimate();
+    }
+
+    // exact, encounter order, first wins; a Bloom filter keeps the exact set down to the duplicates
+    List<Employee> getUniqueEmployeesByIdPrefiltered() {
+        return EmployeeDedup.uniqueByIdPrefiltered(allEmployees, 0.01);
+    }
+
     Set<Integer> getUniqueNumbers() {
         var numbersWithDuplicates = Arrays.asList(1, 3, 2, 1, 2, 4, 5, 3, 5, 7, 9, 23, 3, 6, 8, 34, 6, 50);
         return null;
     }
 
     Set<Employee> getUniqueEmployeesById() {
+        return new LinkedHashSet<>(EmployeeDedup.uniqueSortedById(allEmployees, EmployeeDedup.MergePolicy.KEEP_FIRST));
+    }
+
+    Set<Employee> getUniqueEmployeesByIdWithStreams() {
         return allEmployees.stream()
                 .collect(Collectors.toMap(Employee::id, employee -> employee, (e1, e2) -> e1))
                 .values()
@@ -77,9 +139,88 @@ public class DataStructureExample {
         // .collect(Collectors.toCollection(() -> new TreeSet<>((e1, e2) -> Long.compare(e1.id(), e2.id()))));
     }
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         var ds = new DataStructureExample();
         System.out.println(ds.getUniqueEmployeesById());
+        assertWithPredicate("getUniqueEmployeesByIdAsList",
+                ds.getUniqueEmployeesByIdAsList(),
+                (expected) -> expected.equals(ds.getUniqueEmployeesByIdAsListWithStreams()));
+        assertWithPredicate("getUniqueEmployeesById",
+                ds.getUniqueEmployeesById(),
+                (expected) -> List.copyOf(expected).equals(List.copyOf(ds.getUniqueEmployeesByIdWithStreams())));
+        assertWithPredicate("uniqueSortedById-keepLast",
+                EmployeeDedup.uniqueSortedById(ds.allEmployees, EmployeeDedup.MergePolicy.KEEP_LAST),
+                (expected) -> expected.get(3).name().equals("DVID") && expected.get(4).name().equals("EVE"));
+
+        assertWithPredicate("groupEmployeesByDepartment",
+                ds.groupEmployeesByDepartment(),
+                (expected) -> expected.equals(ds.allEmployees.stream().collect(Collectors.groupingBy(Employee::department))));
+
+        Path csv = Files.createTempFile("employees", ".csv");
+        try {
+            Files.write(csv, ds.allEmployees.stream()
+                    .map(employee -> employee.id() + "," + employee.name() + "," + employee.department())
+                    .toList());
+            assertWithPredicate("groupUniqueEmployeesByDepartment",
+                    ds.groupUniqueEmployeesByDepartment(csv),
+                    (expected) -> expected.equals(ds.getUniqueEmployeesById().stream()
+                            .sorted(Comparator.comparingInt(ds.allEmployees::indexOf))
+                            .collect(Collectors.groupingBy(Employee::department))));
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+
+        var manyEmployees = new ArrayList<Employee>();
+        var random = new Random(7);
+        for (int i = 0; i < 1_000_000; i++) {
+            long id = random.nextInt(400_000);
+            manyEmployees.add(new Employee(id, "Employee " + id, "Engineering"));
+        }
+        assertWithPredicate("approximateUniqueEmployeeCount",
+                ds.approximateUniqueEmployeeCount(),
+                (expected) -> expected == ds.getUniqueEmployeesById().size());
+        assertWithPredicate("getUniqueEmployeesByIdPrefiltered",
+                ds.getUniqueEmployeesByIdPrefiltered(),
+                (expected) -> expected.equals(List.copyOf(ds.allEmployees.stream()
+                        .collect(Collectors.toMap(Employee::id, employee -> employee, (e1, e2) -> e1, LinkedHashMap::new))
+                        .values())));
+
+        // one sketch per thread, merged afterwards
+        int threads = 4;
+        var counters = new HyperLogLog[threads];
+        var filters = new BloomFilter[threads];
+        IntStream.range(0, threads).parallel().forEach(t -> {
+            counters[t] = HyperLogLog.withStandardError(0.01);
+            filters[t] = BloomFilter.forExpected(400_000, 0.01);
+            for (int i = t; i < manyEmployees.size(); i += threads) {
+                counters[t].add(manyEmployees.get(i).id());
+                filters[t].put(manyEmployees.get(i).id());
+            }
+        });
+        for (int t = 1; t < threads; t++) {
+            counters[0].merge(counters[t]);
+            filters[0].merge(filters[t]);
+        }
+        long exactCount = manyEmployees.stream().mapToLong(Employee::id).distinct().count();
+        assertWithPredicate("HyperLogLog-mergedWithinThreeSigma",
+                counters[0].estimate(),
+                (expected) -> Math.abs(expected - exactCount) <= 3 * counters[0].standardError() * exactCount);
+        assertWithPredicate("BloomFilter-mergedNoFalseNegatives",
+                filters[0],
+                (expected) -> manyEmployees.stream().allMatch(employee -> expected.mightContain(employee.id())));
+        long falsePositives = LongStream.range(1_000_000, 1_100_000).filter(filters[0]::mightContain).count();
+        assertWithPredicate("BloomFilter-falsePositiveRate",
+                falsePositives / 100_000.0,
+                (expected) -> expected < 0.02);
+        System.out.printf("HyperLogLog %,d vs exact %,d in %,d bytes; Bloom filter %.2f%% false positives in %,d bytes%n",
+                counters[0].estimate(), exactCount, counters[0].memoryBytes(),
+                falsePositives / 1_000.0, filters[0].memoryBytes());
+        assertWithPredicate("groupEmployeesByDepartmentParallel",
+                ds.groupEmployeesByDepartmentParallel(manyEmployees, ForkJoinPool.commonPool()),
+                (expected) -> expected.equals(manyEmployees.stream().collect(Collectors.groupingBy(Employee::department))));
+        assertWithPredicate("uniqueSortedByIdParallel",
+                EmployeeDedup.uniqueSortedByIdParallel(manyEmployees, EmployeeDedup.MergePolicy.KEEP_LAST),
+                (expected) -> expected.equals(EmployeeDedup.uniqueSortedById(manyEmployees, EmployeeDedup.MergePolicy.KEEP_LAST)));
 
         
     }
@@ -0,0 +1,77 @@
+package lesson.collection;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Thread-safe dictionary that maps department names to small int codes.
+ *
+ * The same handful of names ("Engineering", "Avengers", ...) repeat across millions
+ * of Employee and Hero records. Encoding them once lets grouping and set operations
+ * work on ints (array indexes, bit sets) instead of hashing strings, and decode()
+ * hands back one canonical String per name so duplicates can be dropped.
+ *
+ * Codes are dense, start at 0 and never change. Lookups of known names are a single
+ * ConcurrentHashMap read; only a new name takes the lock.
+ *
+ * A dictionary only grows, so it belongs to the store or index that uses it. Owners
+ * that want common codes pass the same instance to each other; there is no
+ * JVM-wide one, whose codes would depend on whatever else had been loaded.
+ */
+final class DepartmentDictionary {
+
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[16];
+    private int size;
+
+    int encode(String name) {
+        Integer code = codes.get(name);
+        return code != null ? code : register(name);
+    }
+
+    /**
+     * Code of an already known name, or -1, without registering it.
+     */
+    int codeOf(String name) {
+        Integer code = codes.get(name);
+        return code != null ? code : -1;
+    }
+
+    String decode(int code) {
+        String[] current = names;
+        if (code < 0 || code >= current.length || current[code] == null) {
+            throw new IllegalArgumentException("Unknown department code " + code);
+        }
+        return current[code];
+    }
+
+    /**
+     * The dictionary's own instance of the name, so equal strings can share it.
+     */
+    String canonical(String name) {
+        return decode(encode(name));
+    }
+
+    /**
+     * Number of codes handed out so far; every code is below this.
+     */
+    int size() {
+        return codes.size();
+    }
+
+    private synchronized int register(String name) {
+        Integer code = codes.get(name);
+        if (code != null) {
+            return code;
+        }
+        String[] current = names;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = name;
+        // publish the name before the code, so any code a reader can see is decodable
+        names = current;
+        codes.put(name, size);
+        return size++;
+    }
+}
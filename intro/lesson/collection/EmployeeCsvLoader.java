@@ -0,0 +1,390 @@
+package lesson.collection;
+
+import static exercise.utils.SolutionValidation.assertWithPredicate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import lesson.collection.DataStructureExample.Employee;
+
+/**
+ * Streaming loader for employee CSV exports (id,name,department), deduplicated by id.
+ *
+ * The file is read through a FileChannel into one large direct buffer, and lines are
+ * parsed straight from its bytes:
+ * - the id is accumulated digit by digit into a long, no String
+ * - the department is matched as bytes against the departments seen so far and
+ *   turned into a DepartmentDictionary code; a String exists once per department
+ * - the id goes into a LongHashSet before anything else, so a duplicate row (first
+ *   one wins) is skipped without decoding its name
+ * Only the name of a kept row becomes a String. Memory use is the buffer plus what
+ * the caller keeps of the unique rows; the file itself is never held.
+ *
+ * A first line whose id field is not a number is taken as a header and skipped.
+ * Fields may be double-quoted, with "" for a quote inside. Lines end in \n or \r\n
+ * and must fit in the buffer. Malformed lines fail with their line number.
+ */
+final class EmployeeCsvLoader {
+
+    static final int DEFAULT_BUFFER_BYTES = 8 << 20;
+
+    /**
+     * What one pass read: bytes, data rows, rows kept after dedup, and elapsed time.
+     */
+    record Stats(long bytes, long rows, long uniqueRows, long nanos) {
+        double megabytesPerSecond() {
+            return nanos == 0 ? 0 : (bytes / 1e6) / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%,d bytes, %,d rows, %,d unique, %,d ms, %.1f MB/s",
+                    bytes, rows, uniqueRows, nanos / 1_000_000, megabytesPerSecond());
+        }
+    }
+
+    private final ByteBuffer buffer;
+    private final DepartmentDictionary dictionary;
+    private final DepartmentBytes departments = new DepartmentBytes();
+    private byte[] scratch = new byte[256];
+    private int scratchLength;
+    private long lineNumber;
+
+    EmployeeCsvLoader() {
+        this(DEFAULT_BUFFER_BYTES);
+    }
+
+    EmployeeCsvLoader(int bufferBytes) {
+        this(bufferBytes, new DepartmentDictionary());
+    }
+
+    EmployeeCsvLoader(int bufferBytes, DepartmentDictionary dictionary) {
+        this.buffer = ByteBuffer.allocateDirect(bufferBytes);
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Hands every employee whose id has not been seen before to the action, in
+     * file order.
+     */
+    Stats forEachUnique(Path csv, Consumer<Employee> action) {
+        long start = System.nanoTime();
+        LongHashSet seen = new LongHashSet(1 << 16);
+        long rows = 0;
+        long unique = 0;
+        lineNumber = 0;
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            buffer.clear();
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                endOfFile = channel.read(buffer) < 0;
+                buffer.flip();
+                int lineStart = 0;
+                int limit = buffer.limit();
+                while (true) {
+                    int lineEnd = indexOfNewline(lineStart, limit);
+                    if (lineEnd < 0) {
+                        if (!endOfFile || lineStart == limit) {
+                            break;
+                        }
+                        lineEnd = limit; // last line without a trailing newline
+                    }
+                    lineNumber++;
+                    int contentEnd = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+                    if (contentEnd > lineStart) {
+                        int kept = parseLine(lineStart, contentEnd, seen, action);
+                        if (kept >= 0) {
+                            rows++;
+                            unique += kept;
+                        }
+                    }
+                    lineStart = Math.min(lineEnd + 1, limit);
+                    if (lineEnd == limit) {
+                        break;
+                    }
+                }
+                if (!endOfFile && lineStart == 0 && limit == buffer.capacity()) {
+                    throw new IllegalArgumentException("Line " + (lineNumber + 1) + " is longer than the "
+                            + buffer.capacity() + " byte read buffer: " + csv);
+                }
+                // keep the partial last line and read the rest of it behind
+                buffer.position(lineStart);
+                buffer.compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Stats(bytesRead(csv), rows, unique, System.nanoTime() - start);
+    }
+
+    /**
+     * Unique employees grouped by department, departments in dictionary-code order
+     * (as DataStructureExample.groupEmployeesByDepartment does).
+     */
+    Map<String, List<Employee>> groupUniqueByDepartment(Path csv) {
+        List<List<Employee>> byCode = new ArrayList<>();
+        forEachUnique(csv, employee -> {
+            int code = dictionary.codeOf(employee.department());
+            while (byCode.size() <= code) {
+                byCode.add(null);
+            }
+            if (byCode.get(code) == null) {
+                byCode.set(code, new ArrayList<>());
+            }
+            byCode.get(code).add(employee);
+        });
+        Map<String, List<Employee>> grouped = new LinkedHashMap<>();
+        for (int code = 0; code < byCode.size(); code++) {
+            if (byCode.get(code) != null) {
+                grouped.put(dictionary.decode(code), byCode.get(code));
+            }
+        }
+        return grouped;
+    }
+
+    // Returns 1 if the row was kept, 0 for a duplicate id, -1 for a skipped header.
+    private int parseLine(int start, int end, LongHashSet seen, Consumer<Employee> action) {
+        int idEnd = fieldEnd(start, end);
+        long id;
+        try {
+            id = parseId(start, idEnd);
+        } catch (NumberFormatException | ArithmeticException e) {
+            if (lineNumber == 1) {
+                return -1;
+            }
+            throw malformed("id is not a number");
+        }
+        if (idEnd == end) {
+            throw malformed("expected 3 fields");
+        }
+        int nameStart = idEnd + 1;
+        int nameEnd = fieldEnd(nameStart, end);
+        if (nameEnd == end) {
+            throw malformed("expected 3 fields");
+        }
+        int departmentStart = nameEnd + 1;
+        int departmentEnd = fieldEnd(departmentStart, end);
+        if (departmentEnd != end) {
+            throw malformed("expected 3 fields");
+        }
+        if (!seen.add(id)) {
+            return 0;
+        }
+        copyField(departmentStart, departmentEnd);
+        String department = departments.lookup(scratch, scratchLength);
+        copyField(nameStart, nameEnd);
+        action.accept(new Employee(id, new String(scratch, 0, scratchLength, StandardCharsets.UTF_8), department));
+        return 1;
+    }
+
+    private long parseId(int start, int end) {
+        if (end - start >= 2 && buffer.get(start) == '"' && buffer.get(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        boolean negative = start < end && buffer.get(start) == '-';
+        int i = negative ? start + 1 : start;
+        if (i == end) {
+            throw new NumberFormatException();
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException();
+            }
+            // accumulate negatively so Long.MIN_VALUE parses too
+            value = Math.subtractExact(Math.multiplyExact(value, 10), digit);
+        }
+        return negative ? value : Math.negateExact(value);
+    }
+
+    // End of the field starting at start: the next comma outside quotes, or end.
+    private int fieldEnd(int start, int end) {
+        if (start < end && buffer.get(start) == '"') {
+            int i = start + 1;
+            while (i < end) {
+                if (buffer.get(i) == '"') {
+                    if (i + 1 < end && buffer.get(i + 1) == '"') {
+                        i += 2;
+                        continue;
+                    }
+                    if (i + 1 < end && buffer.get(i + 1) != ',') {
+                        throw malformed("text after closing quote");
+                    }
+                    return i + 1;
+                }
+                i++;
+            }
+            throw malformed("unterminated quote");
+        }
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == ',') {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    // Copies the field's bytes into scratch, removing quotes and unescaping "".
+    private void copyField(int start, int end) {
+        if (end - start > scratch.length) {
+            scratch = new byte[Integer.highestOneBit(end - start) << 1];
+        }
+        if (start < end && buffer.get(start) == '"') {
+            int length = 0;
+            for (int i = start + 1; i < end - 1; i++) {
+                byte b = buffer.get(i);
+                scratch[length++] = b;
+                if (b == '"') {
+                    i++; // skip the second quote of ""
+                }
+            }
+            scratchLength = length;
+        } else {
+            buffer.get(start, scratch, 0, end - start);
+            scratchLength = end - start;
+        }
+    }
+
+    private int indexOfNewline(int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private IllegalArgumentException malformed(String reason) {
+        return new IllegalArgumentException("Malformed employee CSV at line " + lineNumber + ": " + reason);
+    }
+
+    private static long bytesRead(Path csv) {
+        try {
+            return Files.size(csv);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Department bytes to canonical dictionary names, so a department String is
+     * created only the first time its bytes are seen. Open addressing; there are
+     * few departments, so this stays tiny.
+     */
+    private final class DepartmentBytes {
+        private byte[][] keys = new byte[16][];
+        private String[] names = new String[16];
+        private int size;
+
+        String lookup(byte[] bytes, int length) {
+            int mask = keys.length - 1;
+            int slot = hash(bytes, length) & mask;
+            while (keys[slot] != null) {
+                if (Arrays.equals(keys[slot], 0, keys[slot].length, bytes, 0, length)) {
+                    return names[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            String name = dictionary.canonical(new String(bytes, 0, length, StandardCharsets.UTF_8));
+            keys[slot] = Arrays.copyOf(bytes, length);
+            names[slot] = name;
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+            return name;
+        }
+
+        private void resize() {
+            byte[][] oldKeys = keys;
+            String[] oldNames = names;
+            keys = new byte[oldKeys.length * 2][];
+            names = new String[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int slot = hash(oldKeys[i], oldKeys[i].length) & mask;
+                    while (keys[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    names[slot] = oldNames[i];
+                }
+            }
+        }
+
+        private static int hash(byte[] bytes, int length) {
+            int h = 1;
+            for (int i = 0; i < length; i++) {
+                h = 31 * h + bytes[i];
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path csv = Files.createTempFile("employees", ".csv");
+        try {
+            String[] departmentNames = {"Engineering", "Marketing", "Sales", "HR", "Finance, Legal"};
+            Random random = new Random(11);
+            try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+                writer.write("id,name,department\n");
+                for (int i = 0; i < 2_000_000; i++) {
+                    long id = random.nextInt(600_000);
+                    String department = departmentNames[(int) (id % departmentNames.length)];
+                    writer.write(id + ",Employee " + id + (i % 3 == 0 ? "" : " (dup " + i + ")") + ","
+                            + (department.contains(",") ? "\"" + department + "\"" : department) + "\n");
+                }
+            }
+            List<Employee> expected = new ArrayList<>();
+            LongHashSet seen = new LongHashSet(1 << 16);
+            try (var lines = Files.lines(csv)) {
+                lines.skip(1).forEach(line -> {
+                    int first = line.indexOf(',');
+                    int second = line.indexOf(',', first + 1);
+                    long id = Long.parseLong(line.substring(0, first));
+                    if (seen.add(id)) {
+                        expected.add(new Employee(id, line.substring(first + 1, second),
+                                line.substring(second + 1).replace("\"", "")));
+                    }
+                });
+            }
+
+            EmployeeCsvLoader loader = new EmployeeCsvLoader();
+            loader.forEachUnique(csv, employee -> { }); // warm-up
+            List<Employee> loaded = new ArrayList<>();
+            Stats stats = loader.forEachUnique(csv, loaded::add);
+            System.out.println("Streamed " + stats);
+
+            assertWithPredicate("EmployeeCsvLoader-dedup", loaded, expected::equals);
+            assertWithPredicate("EmployeeCsvLoader-grouped", loader.groupUniqueByDepartment(csv),
+                    grouped -> grouped.equals(expected.stream().collect(Collectors.groupingBy(Employee::department))));
+
+            // lines straddling buffer refills, CRLF endings, quotes and no trailing newline
+            Files.writeString(csv, "7,\"O\"\"Neil, Pat\",Sales\r\n8,Bob,HR\r\n7,Again,Sales\r\n9,Ann,\"HR\"");
+            List<Employee> small = new ArrayList<>();
+            new EmployeeCsvLoader(32).forEachUnique(csv, small::add);
+            assertWithPredicate("EmployeeCsvLoader-edgeCases", small, rows -> rows.equals(List.of(
+                    new Employee(7, "O\"Neil, Pat", "Sales"), new Employee(8, "Bob", "HR"),
+                    new Employee(9, "Ann", "HR"))));
+        } finally {
+            Files.deleteIfExists(csv);
+        }
+    }
+}
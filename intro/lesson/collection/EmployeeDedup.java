@@ -0,0 +1,199 @@
+package lesson.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import lesson.collection.DataStructureExample.Employee;
+
+/**
+ * Dedup-by-id and sort-by-id for employee lists without boxing the ids.
+ *
+ * Collectors.toMap(Employee::id, ...) turns every id into a Long key and the sort
+ * afterwards goes through a comparator lambda. Here:
+ * - duplicates are dropped with a LongHashSet (keep-first scans forwards,
+ *   keep-last scans backwards, so the same set serves both policies)
+ * - survivors are ordered with an LSD radix sort on the raw long ids
+ *
+ * The parallel variant splits the id range into shards. Every shard is deduped
+ * and sorted on its own thread, and since shards cover increasing id ranges the
+ * results are simply concatenated. Worth it from a few million employees up.
+ */
+final class EmployeeDedup {
+
+    enum MergePolicy { KEEP_FIRST, KEEP_LAST }
+
+    private static final int RADIX_BITS = 16;
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    private EmployeeDedup() {
+    }
+
+    /**
+     * Unique employees by id, ascending by id.
+     */
+    static List<Employee> uniqueSortedById(List<Employee> employees, MergePolicy policy) {
+        Employee[] all = employees.toArray(new Employee[0]);
+        int[] positions = new int[all.length];
+        Arrays.setAll(positions, i -> i);
+        return Arrays.asList(dedupAndSort(all, positions, all.length, policy));
+    }
+
+    static List<Employee> uniqueSortedByIdParallel(List<Employee> employees, MergePolicy policy) {
+        Employee[] all = employees.toArray(new Employee[0]);
+        int n = all.length;
+        int shards = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 4));
+        if (n < 1 << 16 || shards == 1) {
+            return uniqueSortedById(employees, policy);
+        }
+
+        long minId = Long.MAX_VALUE;
+        long maxId = Long.MIN_VALUE;
+        for (Employee employee : all) {
+            minId = Math.min(minId, employee.id());
+            maxId = Math.max(maxId, employee.id());
+        }
+        // shard on the top bits of (id - minId) so shard i holds smaller ids than shard i + 1
+        int spanBits = 64 - Long.numberOfLeadingZeros(maxId - minId);
+        int shift = Math.max(0, spanBits - Integer.numberOfTrailingZeros(shards));
+        long base = minId;
+
+        // stable bucketing of positions per shard: count, prefix-sum, scatter
+        int[] shardOf = new int[n];
+        int[] counts = new int[shards];
+        for (int i = 0; i < n; i++) {
+            int shard = (int) ((all[i].id() - base) >>> shift);
+            shardOf[i] = shard;
+            counts[shard]++;
+        }
+        int[] starts = new int[shards + 1];
+        for (int s = 0; s < shards; s++) {
+            starts[s + 1] = starts[s] + counts[s];
+        }
+        int[] positions = new int[n];
+        int[] cursor = Arrays.copyOf(starts, shards);
+        for (int i = 0; i < n; i++) {
+            positions[cursor[shardOf[i]]++] = i;
+        }
+
+        Employee[][] perShard = new Employee[shards][];
+        IntStream.range(0, shards).parallel().forEach(s -> {
+            int[] shardPositions = Arrays.copyOfRange(positions, starts[s], starts[s + 1]);
+            perShard[s] = dedupAndSort(all, shardPositions, shardPositions.length, policy);
+        });
+
+        List<Employee> result = new ArrayList<>(n);
+        for (Employee[] shard : perShard) {
+            result.addAll(Arrays.asList(shard));
+        }
+        return result;
+    }
+
+    /**
+     * Unique employees by id in encounter order (first wins), with the exact set
+     * sized for the duplicates only.
+     *
+     * A first pass puts every id into a Bloom filter; an id the filter says it has
+     * probably seen is a candidate duplicate (a real one, or a false positive).
+     * The second pass only needs exact bookkeeping for candidates, every other id is
+     * certainly unique. With few duplicates the exact set shrinks from all ids to a
+     * small fraction, at the cost of about 1.2 bytes per id for the filter at 1%.
+     */
+    static List<Employee> uniqueByIdPrefiltered(List<Employee> employees, double falsePositiveRate) {
+        BloomFilter filter = BloomFilter.forExpected(Math.max(1, employees.size()), falsePositiveRate);
+        LongHashSet candidates = new LongHashSet(16);
+        for (Employee employee : employees) {
+            if (!filter.put(employee.id())) {
+                candidates.add(employee.id());
+            }
+        }
+        LongHashSet seenCandidates = new LongHashSet(candidates.size());
+        List<Employee> unique = new ArrayList<>();
+        for (Employee employee : employees) {
+            if (!candidates.contains(employee.id()) || seenCandidates.add(employee.id())) {
+                unique.add(employee);
+            }
+        }
+        return unique;
+    }
+
+    // positions[0..count) index into all, in encounter order
+    private static Employee[] dedupAndSort(Employee[] all, int[] positions, int count, MergePolicy policy) {
+        LongHashSet seen = new LongHashSet(count);
+        int[] kept = new int[count];
+        int unique = 0;
+        if (policy == MergePolicy.KEEP_FIRST) {
+            for (int i = 0; i < count; i++) {
+                if (seen.add(all[positions[i]].id())) {
+                    kept[unique++] = positions[i];
+                }
+            }
+        } else {
+            for (int i = count - 1; i >= 0; i--) {
+                if (seen.add(all[positions[i]].id())) {
+                    kept[unique++] = positions[i];
+                }
+            }
+        }
+
+        long[] keys = new long[unique];
+        for (int i = 0; i < unique; i++) {
+            keys[i] = all[kept[i]].id();
+        }
+        radixSort(keys, kept, unique);
+
+        Employee[] sorted = new Employee[unique];
+        for (int i = 0; i < unique; i++) {
+            sorted[i] = all[kept[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * LSD radix sort of keys[0..n) with 16-bit digits, carrying values along.
+     * The sign bit is flipped so negative ids sort first, and digits that are equal
+     * for every key are skipped (small ids usually need one or two passes).
+     */
+    static void radixSort(long[] keys, int[] values, int n) {
+        long[] keyBuffer = new long[n];
+        int[] valueBuffer = new int[n];
+        long[] srcKeys = keys;
+        int[] srcValues = values;
+        long[] dstKeys = keyBuffer;
+        int[] dstValues = valueBuffer;
+        int[] counts = new int[RADIX + 1];
+
+        for (int shift = 0; shift < 64; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++) {
+                counts[digit(srcKeys[i], shift) + 1]++;
+            }
+            if (n == 0 || counts[digit(srcKeys[0], shift) + 1] == n) {
+                continue;
+            }
+            for (int d = 0; d < RADIX; d++) {
+                counts[d + 1] += counts[d];
+            }
+            for (int i = 0; i < n; i++) {
+                int target = counts[digit(srcKeys[i], shift)]++;
+                dstKeys[target] = srcKeys[i];
+                dstValues[target] = srcValues[i];
+            }
+            long[] swapKeys = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = swapKeys;
+            int[] swapValues = srcValues;
+            srcValues = dstValues;
+            dstValues = swapValues;
+        }
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, n);
+            System.arraycopy(srcValues, 0, values, 0, n);
+        }
+    }
+
+    private static int digit(long key, int shift) {
+        return (int) (((key ^ Long.MIN_VALUE) >>> shift) & (RADIX - 1));
+    }
+}
@@ -0,0 +1,366 @@
+package lesson.collection;
+
+import static exercise.utils.SolutionValidation.assertWithPredicate;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+import lesson.collection.DataStructureExample.Employee;
+
+/**
+ * Off-heap, column-oriented storage for Employee records.
+ *
+ * A List<Employee> costs an object header per record plus a String (and its byte[])
+ * per name and department. Here every field lives in its own column outside the heap:
+ * - id:         8 bytes per row
+ * - name:       UTF-8 bytes in a shared byte column, located by an offset (8 bytes)
+ *               and a length (4 bytes) column
+ * - department: code from the store's DepartmentDictionary (4 bytes)
+ *
+ * Columns are chains of direct ByteBuffers, so they can grow past 2GB and the GC
+ * never scans their contents. The first chunk of each column is sized from the
+ * expected row count and doubles until it reaches the full chunk size, so a small
+ * store stays small. Scans, group-by-department and id lookups read the columns
+ * directly; an Employee or a String is created only when one is asked for.
+ *
+ * Rows are appended and may be updated in place; a new name is appended to the name
+ * bytes and the old bytes are not reclaimed. Not thread-safe for writers; readers may
+ * run concurrently once loading is finished.
+ */
+class EmployeeStore {
+
+    private static final int LONGS_PER_CHUNK = 1 << 20;
+    private static final int INTS_PER_CHUNK = 1 << 20;
+    private static final int BYTES_PER_CHUNK = 1 << 24;
+    private static final int MIN_CHUNK_ROWS = 64;
+    // a guess at the average UTF-8 name length, for sizing the first name chunk
+    private static final int EXPECTED_NAME_BYTES = 16;
+
+    private final List<ByteBuffer> idChunks = new ArrayList<>();
+    private final List<ByteBuffer> nameOffsetChunks = new ArrayList<>();
+    private final List<ByteBuffer> nameLengthChunks = new ArrayList<>();
+    private final List<ByteBuffer> departmentChunks = new ArrayList<>();
+    private final List<ByteBuffer> nameByteChunks = new ArrayList<>();
+    private long nameBytesUsed;
+    private int size;
+    private final int initialRows;
+
+    private final DepartmentDictionary departments;
+
+    // id -> first row with that id; open addressing over primitive arrays, built lazily.
+    // indexKeys is written last and read first, so a non-null value publishes indexRows too.
+    private int[] indexRows;
+    private volatile long[] indexKeys;
+
+    EmployeeStore() {
+        this(MIN_CHUNK_ROWS);
+    }
+
+    /**
+     * A store whose first chunks fit about expectedRows rows without growing.
+     */
+    EmployeeStore(int expectedRows) {
+        this(expectedRows, new DepartmentDictionary());
+    }
+
+    /**
+     * Like EmployeeStore(int), encoding departments through the given dictionary.
+     */
+    EmployeeStore(int expectedRows, DepartmentDictionary departments) {
+        this.initialRows = Math.clamp(expectedRows, MIN_CHUNK_ROWS, LONGS_PER_CHUNK);
+        this.departments = departments;
+    }
+
+    static EmployeeStore of(List<Employee> employees) {
+        EmployeeStore store = new EmployeeStore(employees.size());
+        employees.forEach(employee -> store.append(employee.id(), employee.name(), employee.department()));
+        return store;
+    }
+
+    int append(long id, String name, String department) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > BYTES_PER_CHUNK) {
+            throw new IllegalArgumentException("Name longer than " + BYTES_PER_CHUNK + " bytes");
+        }
+        int row = size;
+        ensureRowCapacity(row);
+        size++;
+        write(row, id, nameBytes, department);
+        return row;
+    }
+
+    /**
+     * Replaces every field of an existing row.
+     */
+    void update(int row, long id, String name, String department) {
+        checkRow(row);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > BYTES_PER_CHUNK) {
+            throw new IllegalArgumentException("Name longer than " + BYTES_PER_CHUNK + " bytes");
+        }
+        write(row, id, nameBytes, department);
+    }
+
+    private void write(int row, long id, byte[] nameBytes, String department) {
+        int chunk = row / LONGS_PER_CHUNK;
+        int slot = row % LONGS_PER_CHUNK;
+        idChunks.get(chunk).putLong(slot * Long.BYTES, id);
+        nameOffsetChunks.get(chunk).putLong(slot * Long.BYTES, writeName(nameBytes));
+        nameLengthChunks.get(chunk).putInt(slot * Integer.BYTES, nameBytes.length);
+        departmentChunks.get(chunk).putInt(slot * Integer.BYTES, departments.encode(department));
+        indexKeys = null;
+    }
+
+    // New chunks after the first start full; the first doubles up to the chunk size
+    private void ensureRowCapacity(int row) {
+        int chunk = row / LONGS_PER_CHUNK;
+        int slot = row % LONGS_PER_CHUNK;
+        if (chunk == idChunks.size()) {
+            int rows = chunk == 0 ? initialRows : LONGS_PER_CHUNK;
+            idChunks.add(allocate(rows * Long.BYTES));
+            nameOffsetChunks.add(allocate(rows * Long.BYTES));
+            nameLengthChunks.add(allocate(rows * Integer.BYTES));
+            departmentChunks.add(allocate(rows * Integer.BYTES));
+        } else if (slot * Long.BYTES == idChunks.get(chunk).capacity()) {
+            int rows = Math.min(LONGS_PER_CHUNK, slot * 2);
+            grow(idChunks, chunk, rows * Long.BYTES);
+            grow(nameOffsetChunks, chunk, rows * Long.BYTES);
+            grow(nameLengthChunks, chunk, rows * Integer.BYTES);
+            grow(departmentChunks, chunk, rows * Integer.BYTES);
+        }
+    }
+
+    private static void grow(List<ByteBuffer> column, int chunk, int bytes) {
+        ByteBuffer old = column.get(chunk);
+        column.set(chunk, allocate(bytes).put(0, old, 0, old.capacity()));
+    }
+
+    int size() {
+        return size;
+    }
+
+    long id(int row) {
+        checkRow(row);
+        return idChunks.get(row / LONGS_PER_CHUNK).getLong((row % LONGS_PER_CHUNK) * Long.BYTES);
+    }
+
+    int departmentCode(int row) {
+        checkRow(row);
+        return departmentChunks.get(row / INTS_PER_CHUNK).getInt((row % INTS_PER_CHUNK) * Integer.BYTES);
+    }
+
+    String department(int row) {
+        return departments.decode(departmentCode(row));
+    }
+
+    String name(int row) {
+        checkRow(row);
+        long offset = nameOffsetChunks.get(row / LONGS_PER_CHUNK).getLong((row % LONGS_PER_CHUNK) * Long.BYTES);
+        int length = nameLengthChunks.get(row / INTS_PER_CHUNK).getInt((row % INTS_PER_CHUNK) * Integer.BYTES);
+        byte[] bytes = new byte[length];
+        nameByteChunks.get((int) (offset / BYTES_PER_CHUNK)).get((int) (offset % BYTES_PER_CHUNK), bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    Employee employee(int row) {
+        return new Employee(id(row), name(row), department(row));
+    }
+
+    /**
+     * Row of the first employee stored with this id, or -1.
+     */
+    int rowOf(long id) {
+        long[] keys = indexKeys;
+        if (keys == null) {
+            buildIdIndex();
+            keys = indexKeys;
+        }
+        int[] rows = indexRows;
+        int mask = keys.length - 1;
+        int slot = LongObjectHashMap.hash(id) & mask;
+        while (rows[slot] != -1) {
+            if (keys[slot] == id) {
+                return rows[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Calls the action with every row in the department, in insertion order.
+     */
+    void forEachRowInDepartment(String department, IntConsumer action) {
+        int code = departments.codeOf(department);
+        if (code == -1) {
+            return;
+        }
+        for (int chunk = 0; chunk < departmentChunks.size(); chunk++) {
+            ByteBuffer codes = departmentChunks.get(chunk);
+            int rows = Math.min(INTS_PER_CHUNK, size - chunk * INTS_PER_CHUNK);
+            for (int slot = 0; slot < rows; slot++) {
+                if (codes.getInt(slot * Integer.BYTES) == code) {
+                    action.accept(chunk * INTS_PER_CHUNK + slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Group-by-department count, computed on the dictionary codes.
+     */
+    Map<String, Integer> countByDepartment() {
+        // a dictionary passed in by the owner may hold codes this store never used
+        int[] counts = new int[departments.size()];
+        for (int chunk = 0; chunk < departmentChunks.size(); chunk++) {
+            ByteBuffer codes = departmentChunks.get(chunk);
+            int rows = Math.min(INTS_PER_CHUNK, size - chunk * INTS_PER_CHUNK);
+            for (int slot = 0; slot < rows; slot++) {
+                counts[codes.getInt(slot * Integer.BYTES)]++;
+            }
+        }
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            if (counts[code] > 0) {
+                result.put(departments.decode(code), counts[code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Group-by-department that materializes the employees, for small result sets.
+     */
+    Map<String, List<Employee>> groupByDepartment() {
+        Map<String, List<Employee>> result = new LinkedHashMap<>();
+        for (int row = 0; row < size; row++) {
+            result.computeIfAbsent(department(row), department -> new ArrayList<>()).add(employee(row));
+        }
+        return result;
+    }
+
+    long sumOfIds() {
+        long sum = 0;
+        for (int chunk = 0; chunk < idChunks.size(); chunk++) {
+            ByteBuffer ids = idChunks.get(chunk);
+            int rows = Math.min(LONGS_PER_CHUNK, size - chunk * LONGS_PER_CHUNK);
+            for (int slot = 0; slot < rows; slot++) {
+                sum += ids.getLong(slot * Long.BYTES);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Bytes reserved outside the heap by the columns.
+     */
+    long offHeapBytes() {
+        long bytes = 0;
+        for (List<ByteBuffer> column : List.of(idChunks, nameOffsetChunks, nameLengthChunks, departmentChunks, nameByteChunks)) {
+            for (ByteBuffer chunk : column) {
+                bytes += chunk.capacity();
+            }
+        }
+        return bytes;
+    }
+
+    private long writeName(byte[] bytes) {
+        long chunk = nameBytesUsed / BYTES_PER_CHUNK;
+        // names never straddle two chunks: skip to the next chunk when this one is too full
+        if (chunk >= nameByteChunks.size() || nameBytesUsed % BYTES_PER_CHUNK + bytes.length > BYTES_PER_CHUNK) {
+            nameBytesUsed = (long) nameByteChunks.size() * BYTES_PER_CHUNK;
+            nameByteChunks.add(allocate(nameByteChunks.isEmpty()
+                    ? Math.clamp((long) initialRows * EXPECTED_NAME_BYTES, bytes.length, BYTES_PER_CHUNK)
+                    : BYTES_PER_CHUNK));
+        }
+        long offset = nameBytesUsed;
+        int last = nameByteChunks.size() - 1;
+        int end = (int) (offset % BYTES_PER_CHUNK) + bytes.length;
+        if (end > nameByteChunks.get(last).capacity()) {
+            // only the first name chunk can be short of the full size
+            grow(nameByteChunks, last, (int) Math.min(BYTES_PER_CHUNK,
+                    Math.max(end, 2L * nameByteChunks.get(last).capacity())));
+        }
+        nameByteChunks.get((int) (offset / BYTES_PER_CHUNK)).put((int) (offset % BYTES_PER_CHUNK), bytes);
+        nameBytesUsed += bytes.length;
+        return offset;
+    }
+
+    private synchronized void buildIdIndex() {
+        if (indexKeys != null) {
+            return;
+        }
+        int capacity = Integer.highestOneBit(Math.max(8, size * 2 - 1)) << 1;
+        long[] keys = new long[capacity];
+        int[] rows = new int[capacity];
+        Arrays.fill(rows, -1);
+        int mask = capacity - 1;
+        for (int row = 0; row < size; row++) {
+            long id = id(row);
+            int slot = LongObjectHashMap.hash(id) & mask;
+            while (rows[slot] != -1 && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            if (rows[slot] == -1) {
+                keys[slot] = id;
+                rows[slot] = row;
+            }
+        }
+        indexRows = rows;
+        indexKeys = keys;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " out of bounds for size " + size);
+        }
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    public static void main(String[] args) {
+        EmployeeStore one = new EmployeeStore();
+        int row = one.append(7, "Zoë Åström", "Engineering");
+        assertWithPredicate("EmployeeStore-roundTrip", one.employee(row),
+                employee -> employee.equals(new Employee(7, "Zoë Åström", "Engineering")) && one.size() == 1);
+        assertWithPredicate("EmployeeStore-smallFootprint", one.offHeapBytes(), bytes -> bytes < 8 * 1024);
+
+        one.update(row, 8, "Zoe Astrom", "Finance");
+        assertWithPredicate("EmployeeStore-update", one.employee(row),
+                employee -> employee.equals(new Employee(8, "Zoe Astrom", "Finance"))
+                        && one.rowOf(8) == row && one.rowOf(7) == -1);
+
+        // grow well past the first chunk's initial size, names included
+        List<Employee> employees = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            employees.add(new Employee(i, "Employee " + i + (i % 3 == 0 ? " the longer-named" : ""),
+                    i % 2 == 0 ? "Sales" : "HR"));
+        }
+        EmployeeStore grown = new EmployeeStore(10);
+        employees.forEach(employee -> grown.append(employee.id(), employee.name(), employee.department()));
+        boolean allRead = true;
+        for (int i = 0; i < employees.size(); i++) {
+            allRead &= grown.employee(i).equals(employees.get(i)) && grown.rowOf(i) == i;
+        }
+        assertWithPredicate("EmployeeStore-grownRoundTrip", allRead,
+                same -> same && grown.countByDepartment().equals(Map.of("Sales", 25_000, "HR", 25_000)));
+
+        boolean rejected;
+        try {
+            grown.name(employees.size());
+            rejected = false;
+        } catch (IndexOutOfBoundsException e) {
+            rejected = true;
+        }
+        assertWithPredicate("EmployeeStore-rowOutOfBounds", rejected, r -> r);
+    }
+}
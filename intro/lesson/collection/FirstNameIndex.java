@@ -0,0 +1,89 @@
+package lesson.collection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import lesson.collection.HeroStructureSolution.Hero;
+
+/**
+ * Sorted first-name index for exact, case-insensitive and prefix (type-ahead) search.
+ *
+ * Heroes are bucketed under their lower-cased first name in a ConcurrentSkipListMap,
+ * so every lookup is an O(log n) descent followed by a walk over the matches only.
+ * Prefix search is a subMap range from prefix up to prefix + Character.MAX_VALUE.
+ *
+ * Adds and removes are O(log n). Writers are serialized on the index, readers never
+ * take a lock; a reader running next to a writer sees each change either fully or not at all.
+ */
+class FirstNameIndex {
+
+    // folded first name -> (hero id -> hero); the inner map keeps heroes in id order
+    private final ConcurrentSkipListMap<String, ConcurrentSkipListMap<Long, Hero>> heroesByName =
+            new ConcurrentSkipListMap<>();
+
+    static FirstNameIndex of(Collection<Hero> heroes) {
+        FirstNameIndex index = new FirstNameIndex();
+        heroes.forEach(index::add);
+        return index;
+    }
+
+    synchronized void add(Hero hero) {
+        heroesByName.computeIfAbsent(fold(hero.fname()), name -> new ConcurrentSkipListMap<>())
+                .put(hero.id(), hero);
+    }
+
+    synchronized void remove(Hero hero) {
+        String name = fold(hero.fname());
+        Map<Long, Hero> heroes = heroesByName.get(name);
+        if (heroes != null && heroes.remove(hero.id(), hero) && heroes.isEmpty()) {
+            heroesByName.remove(name);
+        }
+    }
+
+    List<Hero> findExact(String fname) {
+        Map<Long, Hero> heroes = heroesByName.get(fold(fname));
+        if (heroes == null) {
+            return List.of();
+        }
+        List<Hero> matches = new ArrayList<>();
+        for (Hero hero : heroes.values()) {
+            if (hero.fname().equals(fname)) {
+                matches.add(hero);
+            }
+        }
+        return matches;
+    }
+
+    List<Hero> findIgnoreCase(String fname) {
+        Map<Long, Hero> heroes = heroesByName.get(fold(fname));
+        return heroes == null ? List.of() : List.copyOf(heroes.values());
+    }
+
+    /**
+     * Case-insensitive prefix search, returning at most {@code limit} heroes in name order.
+     */
+    List<Hero> findByPrefix(String prefix, int limit) {
+        String folded = fold(prefix);
+        NavigableMap<String, ConcurrentSkipListMap<Long, Hero>> range =
+                heroesByName.subMap(folded, true, folded + Character.MAX_VALUE, false);
+        List<Hero> matches = new ArrayList<>();
+        for (Map<Long, Hero> heroes : range.values()) {
+            for (Hero hero : heroes.values()) {
+                if (matches.size() == limit) {
+                    return matches;
+                }
+                matches.add(hero);
+            }
+        }
+        return matches;
+    }
+
+    private static String fold(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,121 @@
+package lesson.collection;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lesson.collection.HeroStructureSolution.Department;
+import lesson.collection.HeroStructureSolution.Hero;
+
+/**
+ * Incrementally maintained department index over heroes.
+ *
+ * Instead of flatMapping every hero on every query, the index is updated as heroes
+ * are added or removed:
+ * - an inverted index from Department.id (primitive long key) to the heroes in it
+ * - a name -> department ids dictionary so name lookups resolve to ids first; several
+ *   departments may share a name, and a name lookup covers all of them
+ *
+ * Queries then only touch the heroes they return. Not thread-safe.
+ */
+class HeroIndex {
+
+    private final LongObjectHashMap<LinkedHashSet<Hero>> heroesByDepartmentId = new LongObjectHashMap<>();
+    private final LongObjectHashMap<Department> departmentsById = new LongObjectHashMap<>();
+    private final Map<String, LinkedHashSet<Long>> departmentIdsByName = new HashMap<>();
+    private final Map<Long, Hero> heroesById = new HashMap<>();
+
+    static HeroIndex of(Collection<Hero> heroes) {
+        HeroIndex index = new HeroIndex();
+        heroes.forEach(index::add);
+        return index;
+    }
+
+    /**
+     * Adds a hero, replacing any hero already indexed under the same id.
+     */
+    void add(Hero hero) {
+        Hero previous = heroesById.put(hero.id(), hero);
+        if (previous != null) {
+            unlink(previous);
+        }
+        for (Department department : hero.departments()) {
+            Department known = departmentsById.get(department.id());
+            if (known != null && !known.name().equals(department.name())) {
+                unlinkName(known);
+            }
+            departmentsById.put(department.id(), department);
+            departmentIdsByName.computeIfAbsent(department.name(), name -> new LinkedHashSet<>()).add(department.id());
+            heroesByDepartmentId.computeIfAbsent(department.id(), id -> new LinkedHashSet<>()).add(hero);
+        }
+    }
+
+    boolean remove(Long heroId) {
+        Hero removed = heroesById.remove(heroId);
+        if (removed == null) {
+            return false;
+        }
+        unlink(removed);
+        return true;
+    }
+
+    Set<Hero> heroesInDepartment(long departmentId) {
+        LinkedHashSet<Hero> heroes = heroesByDepartmentId.get(departmentId);
+        return heroes == null ? Set.of() : new LinkedHashSet<>(heroes);
+    }
+
+    Set<Hero> heroesInDepartment(String departmentName) {
+        LinkedHashSet<Long> departmentIds = departmentIdsByName.get(departmentName);
+        if (departmentIds == null) {
+            return Set.of();
+        }
+        LinkedHashSet<Hero> heroes = new LinkedHashSet<>();
+        for (long departmentId : departmentIds) {
+            heroes.addAll(heroesByDepartmentId.get(departmentId));
+        }
+        return heroes;
+    }
+
+    Map<String, List<Hero>> groupByDepartmentName() {
+        Map<String, List<Hero>> grouped = new LinkedHashMap<>();
+        // departmentsById only holds departments that currently have heroes
+        departmentsById.forEachValue(department -> grouped
+                .computeIfAbsent(department.name(), name -> new ArrayList<>())
+                .addAll(heroesByDepartmentId.get(department.id())));
+        return grouped;
+    }
+
+    Set<String> departmentNames() {
+        return Set.copyOf(departmentIdsByName.keySet());
+    }
+
+    int size() {
+        return heroesById.size();
+    }
+
+    private void unlink(Hero hero) {
+        for (Department department : hero.departments()) {
+            LinkedHashSet<Hero> heroes = heroesByDepartmentId.get(department.id());
+            if (heroes != null && heroes.remove(hero) && heroes.isEmpty()) {
+                heroesByDepartmentId.remove(department.id());
+                Department known = departmentsById.remove(department.id());
+                if (known != null) {
+                    unlinkName(known);
+                }
+            }
+        }
+    }
+
+    // the name only goes once no other department id carries it
+    private void unlinkName(Department department) {
+        LinkedHashSet<Long> departmentIds = departmentIdsByName.get(department.name());
+        if (departmentIds != null && departmentIds.remove(department.id()) && departmentIds.isEmpty()) {
+            departmentIdsByName.remove(department.name());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package lesson.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lesson.collection.HeroStructureSolution.Department;
+import lesson.collection.HeroStructureSolution.Hero;
+
+/**
+ * Department membership stored as bits, for AND/OR/NOT queries across departments.
+ *
+ * Departments are numbered through the index's DepartmentDictionary and heroes get a
+ * dense ordinal as they are added. Two views are kept in sync:
+ * - per hero: a long mask of department codes while the catalog has fewer than 64
+ *   departments, with a CompressedBitmap for heroes holding larger codes
+ * - per department: a CompressedBitmap of hero ordinals
+ *
+ * "Avengers AND Stark Industries" is then one bitmap AND instead of a stream over
+ * every hero's department list. Ordinals of removed heroes are not reused.
+ * Not thread-safe.
+ */
+class HeroMembershipIndex {
+
+    private final DepartmentDictionary dictionary;
+    private final List<Hero> heroesByOrdinal = new ArrayList<>();
+    private final Map<Long, Integer> ordinalById = new HashMap<>();
+    private final List<CompressedBitmap> heroesByDepartmentCode = new ArrayList<>();
+    private long[] smallMasks = new long[16];
+    private final Map<Integer, CompressedBitmap> largeMasks = new HashMap<>();
+
+    HeroMembershipIndex() {
+        this(new DepartmentDictionary());
+    }
+
+    /**
+     * An index numbering departments through the given dictionary. Codes below 64 fit
+     * the per-hero long mask, so a dictionary holding other names costs mask space.
+     */
+    HeroMembershipIndex(DepartmentDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    static HeroMembershipIndex of(Collection<Hero> heroes) {
+        HeroMembershipIndex index = new HeroMembershipIndex();
+        heroes.forEach(index::add);
+        return index;
+    }
+
+    /**
+     * Adds a hero, replacing any hero already indexed under the same id.
+     */
+    void add(Hero hero) {
+        remove(hero.id());
+        int ordinal = heroesByOrdinal.size();
+        heroesByOrdinal.add(hero);
+        ordinalById.put(hero.id(), ordinal);
+        if (ordinal == smallMasks.length) {
+            smallMasks = Arrays.copyOf(smallMasks, ordinal * 2);
+        }
+        for (Department department : hero.departments()) {
+            int code = dictionary.encode(department.name());
+            if (code < Long.SIZE) {
+                smallMasks[ordinal] |= 1L << code;
+            } else {
+                largeMasks.computeIfAbsent(ordinal, o -> new CompressedBitmap()).add(code);
+            }
+            while (heroesByDepartmentCode.size() <= code) {
+                heroesByDepartmentCode.add(new CompressedBitmap());
+            }
+            heroesByDepartmentCode.get(code).add(ordinal);
+        }
+    }
+
+    boolean remove(Long heroId) {
+        Integer ordinal = ordinalById.remove(heroId);
+        if (ordinal == null) {
+            return false;
+        }
+        Hero hero = heroesByOrdinal.set(ordinal, null);
+        for (Department department : hero.departments()) {
+            heroesByDepartmentCode.get(dictionary.codeOf(department.name())).remove(ordinal);
+        }
+        smallMasks[ordinal] = 0;
+        largeMasks.remove(ordinal);
+        return true;
+    }
+
+    boolean isMember(Hero hero, String departmentName) {
+        Integer ordinal = ordinalById.get(hero.id());
+        int code = dictionary.codeOf(departmentName);
+        if (ordinal == null || code == -1) {
+            return false;
+        }
+        if (code < Long.SIZE) {
+            return (smallMasks[ordinal] & (1L << code)) != 0;
+        }
+        CompressedBitmap large = largeMasks.get(ordinal);
+        return large != null && large.contains(code);
+    }
+
+    /**
+     * Department codes (below 64) the hero belongs to, as a bit mask.
+     */
+    long departmentMask(Hero hero) {
+        Integer ordinal = ordinalById.get(hero.id());
+        return ordinal == null ? 0 : smallMasks[ordinal];
+    }
+
+    private CompressedBitmap heroesIn(String departmentName) {
+        int code = dictionary.codeOf(departmentName);
+        return code == -1 || code >= heroesByDepartmentCode.size()
+                ? new CompressedBitmap()
+                : heroesByDepartmentCode.get(code);
+    }
+
+    List<Hero> inAll(String... departmentNames) {
+        if (departmentNames.length == 0) {
+            return List.of();
+        }
+        CompressedBitmap result = heroesIn(departmentNames[0]);
+        for (int i = 1; i < departmentNames.length; i++) {
+            result = result.and(heroesIn(departmentNames[i]));
+        }
+        return toHeroes(result);
+    }
+
+    List<Hero> inAny(String... departmentNames) {
+        CompressedBitmap result = new CompressedBitmap();
+        for (String departmentName : departmentNames) {
+            result = result.or(heroesIn(departmentName));
+        }
+        return toHeroes(result);
+    }
+
+    List<Hero> inButNotIn(String departmentName, String excludedDepartmentName) {
+        return toHeroes(heroesIn(departmentName).andNot(heroesIn(excludedDepartmentName)));
+    }
+
+    List<Hero> toHeroes(CompressedBitmap ordinals) {
+        List<Hero> heroes = new ArrayList<>(ordinals.cardinality());
+        ordinals.forEach(ordinal -> heroes.add(heroesByOrdinal.get(ordinal)));
+        return heroes;
+    }
+}
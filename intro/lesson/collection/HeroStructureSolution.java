@@ -2,6 +2,8 @@ package lesson.collection;
 
 import static exercise.utils.SolutionValidation.assertWithPredicate;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class HeroStructureSolution {
@@ -12,7 +14,19 @@ public class HeroStructureSolution {
     record Hero(Long id, String fname, String lname, List<Department> departments) {
     }
 
+    // grouping and name lookups no longer re-flatten every hero
+    private final HeroIndex heroIndex = HeroIndex.of(allHeroes);
+    // department membership as bitmaps, for AND / OR / NOT queries
+    private final HeroMembershipIndex membershipIndex = HeroMembershipIndex.of(allHeroes);
+    // sorted name index, lookups no longer scan allHeroes
+    private final FirstNameIndex firstNameIndex = FirstNameIndex.of(allHeroes);
+
     Map<String, List<Hero>> groupHeroesByDepartmentName() {
+        return heroIndex.groupByDepartmentName();
+    }
+
+    // Stream version, rebuilds the whole grouping on each call
+    Map<String, List<Hero>> groupHeroesByDepartmentNameWithStreams() {
         record DepartmentWithHeroes(String department, Hero hero) {}
         return allHeroes.stream()
                 .flatMap(hero -> hero.departments().stream()
@@ -21,12 +35,51 @@ public class HeroStructureSolution {
                         Collectors.mapping(DepartmentWithHeroes::hero, Collectors.toList())));
     }
 
+    // large hero lists: per-thread partial maps merged in order, on the caller's pool
+    Map<String, List<Hero>> groupHeroesByDepartmentNameParallel(List<Hero> heroes, ForkJoinPool pool) {
+        return ParallelGrouping.groupingByKeys(heroes,
+                (hero, departmentNames) -> hero.departments().forEach(department -> departmentNames.accept(department.name())),
+                pool, true);
+    }
+
+    // one pass, at most n heroes held per department, no full grouping
+    Map<String, List<Hero>> firstHeroesPerDepartmentName(int n) {
+        return allHeroes.stream().collect(TopKCollectors.firstKPerKeys(
+                (hero, departmentNames) -> hero.departments().forEach(department -> departmentNames.accept(department.name())),
+                n));
+    }
+
+    Set<Hero> findHeroesByDepartmentName(String departmentName) {
+        return heroIndex.heroesInDepartment(departmentName);
+    }
+
+    List<Hero> findHeroesInAllDepartments(String... departmentNames) {
+        return membershipIndex.inAll(departmentNames);
+    }
+
+    List<Hero> findHeroesInAnyDepartment(String... departmentNames) {
+        return membershipIndex.inAny(departmentNames);
+    }
+
+    List<Hero> findHeroesInDepartmentExcluding(String departmentName, String excludedDepartmentName) {
+        return membershipIndex.inButNotIn(departmentName, excludedDepartmentName);
+    }
+
     Set<String> getUniqueDepartmentNames() {
         return allDepartments.stream().map(Department::name).collect(Collectors.toSet());
     }
 
     List<Hero> findHeroesByFirstName(String fname) {
-        return allHeroes.stream().filter(hero -> hero.fname().equals(fname)).toList();
+        return firstNameIndex.findExact(fname);
+    }
+
+    List<Hero> findHeroesByFirstNameIgnoreCase(String fname) {
+        return firstNameIndex.findIgnoreCase(fname);
+    }
+
+    // type-ahead search
+    List<Hero> findHeroesByFirstNamePrefix(String prefix, int limit) {
+        return firstNameIndex.findByPrefix(prefix, limit);
     }
 
     public static void main(String[] args) {
@@ -36,6 +89,12 @@ public class HeroStructureSolution {
         assertWithPredicate("findHeroesByFirstName",
                 heroStructure.findHeroesByFirstName("Peter"),
                 (expected) -> Objects.nonNull(expected) && expected.containsAll(List.of(peter, pan)));
+        assertWithPredicate("findHeroesByFirstNameIgnoreCase",
+                heroStructure.findHeroesByFirstNameIgnoreCase("pETER"),
+                (expected) -> Objects.nonNull(expected) && expected.equals(List.of(peter, pan)));
+        assertWithPredicate("findHeroesByFirstNamePrefix",
+                heroStructure.findHeroesByFirstNamePrefix("d", 10),
+                (expected) -> Objects.nonNull(expected) && expected.equals(List.of(diana)));
         assertWithPredicate("getUniqueDepartments", heroStructure.getUniqueDepartmentNames(),
                 (expected) -> Objects.nonNull(expected)
                         && expected.size() == (new HashSet<>(allDepartments)).size()
@@ -52,6 +111,50 @@ public class HeroStructureSolution {
                                 dailyBugle.name(), starkIndustries.name(),
                                 dailyPlanet.name(), disney.name())));
 
+        assertWithPredicate("findHeroesByDepartmentName",
+                heroStructure.findHeroesByDepartmentName(avengers.name()),
+                (expected) -> Objects.nonNull(expected)
+                        && expected.equals(Set.of(peter, tony)));
+
+        // two department ids sharing a name: removing the last hero of one keeps the other findable
+        HeroIndex sharedName = HeroIndex.of(List.of(peter, new Hero(7L, "Carol", "Danvers",
+                List.of(new Department(8, avengers.name())))));
+        sharedName.remove(peter.id());
+        assertWithPredicate("HeroIndex-sharedDepartmentName",
+                sharedName.heroesInDepartment(avengers.name()),
+                (expected) -> expected.size() == 1 && expected.iterator().next().id() == 7L);
+
+        assertWithPredicate("findHeroesInAllDepartments",
+                heroStructure.findHeroesInAllDepartments(avengers.name(), starkIndustries.name()),
+                (expected) -> expected.equals(List.of(tony)));
+        assertWithPredicate("findHeroesInAnyDepartment",
+                heroStructure.findHeroesInAnyDepartment(justiceLeague.name(), disney.name()),
+                (expected) -> expected.equals(List.of(clark, pan, diana)));
+        assertWithPredicate("findHeroesInDepartmentExcluding",
+                heroStructure.findHeroesInDepartmentExcluding(avengers.name(), dailyBugle.name()),
+                (expected) -> expected.equals(List.of(tony)));
+
+        assertWithPredicate("groupHeroesByDepartmentNameParallel",
+                heroStructure.groupHeroesByDepartmentNameParallel(allHeroes, ForkJoinPool.commonPool()),
+                (expected) -> expected.equals(heroStructure.groupHeroesByDepartmentNameWithStreams()));
+
+        assertWithPredicate("firstHeroesPerDepartmentName",
+                heroStructure.firstHeroesPerDepartmentName(1),
+                (expected) -> expected.equals(heroStructure.groupHeroesByDepartmentNameWithStreams().entrySet().stream()
+                        .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().subList(0, 1)))));
+        assertWithPredicate("firstHeroesPerDepartmentName-parallel",
+                allHeroes.parallelStream().collect(TopKCollectors.topKPerKeys(
+                        (Hero hero, Consumer<String> names) ->
+                                hero.departments().forEach(department -> names.accept(department.name())),
+                        2, Comparator.comparing(Hero::fname))),
+                (expected) -> expected.equals(heroStructure.groupHeroesByDepartmentNameWithStreams().entrySet().stream()
+                        .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().stream()
+                                .sorted(Comparator.comparing(Hero::fname)).limit(2).toList()))));
+
+        assertWithPredicate("groupHeroesByDepartmentName-matchesStreams",
+                heroStructure.groupHeroesByDepartmentName(),
+                (expected) -> expected.equals(heroStructure.groupHeroesByDepartmentNameWithStreams()));
+
     }
 
     // Creates a list of heroes with different departments
@@ -0,0 +1,116 @@
+package lesson.collection;
+
+/**
+ * HyperLogLog distinct counter for long ids.
+ *
+ * Each id is hashed to 64 bits. The top p bits pick one of m = 2^p one-byte
+ * registers, which keeps the longest run of leading zeros seen in the remaining bits.
+ * The estimate is a bias-corrected harmonic mean over the registers, with linear
+ * counting for small cardinalities. Memory is m bytes however many ids are added, and
+ * the standard error is about 1.04 / sqrt(m): 16KB (p = 14) gives about 0.8%.
+ *
+ * Sketches with the same precision merge by taking the maximum of every register, so
+ * each thread can count its own part and the results are combined afterwards. Not
+ * thread-safe.
+ */
+final class HyperLogLog {
+
+    static final int MIN_PRECISION = 4;
+    static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+    private HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException(
+                    "Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ", got " + precision);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * A counter with 2^precision registers (and bytes).
+     */
+    static HyperLogLog withPrecision(int precision) {
+        return new HyperLogLog(precision);
+    }
+
+    /**
+     * The smallest counter whose standard error is at most the given fraction,
+     * e.g. 0.01 for 1%.
+     */
+    static HyperLogLog withStandardError(double error) {
+        if (!(error > 0 && error < 1)) {
+            throw new IllegalArgumentException("Standard error must be between 0 and 1, got " + error);
+        }
+        double registersNeeded = Math.pow(1.04 / error, 2);
+        int precision = Math.max(MIN_PRECISION, 64 - Long.numberOfLeadingZeros((long) Math.ceil(registersNeeded) - 1));
+        return new HyperLogLog(Math.min(MAX_PRECISION, precision));
+    }
+
+    void add(long id) {
+        long hash = LongObjectHashMap.mix64(id);
+        int register = (int) (hash >>> (64 - precision));
+        // a marker bit below the remaining bits caps the run at 64 - precision
+        long remaining = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[register]) {
+            registers[register] = rank;
+        }
+    }
+
+    long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte rank : registers) {
+            sum += Double.longBitsToDouble((1023L - rank) << 52); // 2^-rank
+            if (rank == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * Adds everything counted by the other sketch into this one.
+     */
+    void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException(
+                    "Cannot merge precision " + other.precision + " into precision " + precision);
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    int precision() {
+        return precision;
+    }
+
+    double standardError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+    int memoryBytes() {
+        return registers.length;
+    }
+
+    private static double alpha(int m) {
+        return switch (m) {
+            case 16 -> 0.673;
+            case 32 -> 0.697;
+            case 64 -> 0.709;
+            default -> 0.7213 / (1 + 1.079 / m);
+        };
+    }
+}
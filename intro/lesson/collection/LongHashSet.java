@@ -0,0 +1,80 @@
+package lesson.collection;
+
+/**
+ * Open-addressing hash set of primitive longs (linear probing, no boxing).
+ *
+ * 0 is used as the empty-slot marker, and a real 0 key is tracked with a separate
+ * flag. Add-only, which is all the dedup passes need. Not thread-safe.
+ */
+class LongHashSet {
+
+    private long[] slots;
+    private int size;
+    private boolean containsZero;
+
+    LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(8, expectedSize * 2 - 1)) << 1;
+        slots = new long[capacity];
+    }
+
+    /**
+     * Returns true if the key was not yet present.
+     */
+    boolean add(long key) {
+        if (key == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+            size++;
+            return true;
+        }
+        int mask = slots.length - 1;
+        int slot = LongObjectHashMap.hash(key) & mask;
+        while (slots[slot] != 0) {
+            if (slots[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = key;
+        if (++size * 2 > slots.length) {
+            resize();
+        }
+        return true;
+    }
+
+    boolean contains(long key) {
+        if (key == 0) {
+            return containsZero;
+        }
+        int mask = slots.length - 1;
+        int slot = LongObjectHashMap.hash(key) & mask;
+        while (slots[slot] != 0) {
+            if (slots[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        int mask = slots.length - 1;
+        for (long key : old) {
+            if (key != 0) {
+                int slot = LongObjectHashMap.hash(key) & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = key;
+            }
+        }
+    }
+}
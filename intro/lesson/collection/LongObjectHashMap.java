@@ -0,0 +1,166 @@
+package lesson.collection;
+
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+
+/**
+ * Minimal open-addressing hash map with primitive long keys.
+ *
+ * Keys are stored in a long[] next to the values, so lookups never box the key
+ * into a Long the way HashMap<Long, V> does. Collisions use linear probing and
+ * removal uses backward-shift deletion, so there are no tombstones to clean up.
+ * Not thread-safe.
+ */
+class LongObjectHashMap<V> {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private long[] keys;
+    private Object[] values;
+    private boolean[] used;
+    private int size;
+
+    LongObjectHashMap() {
+        this(MIN_CAPACITY);
+    }
+
+    LongObjectHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(MIN_CAPACITY, expectedSize * 2 - 1)) << 1;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean containsKey(long key) {
+        return used[indexOf(key)];
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int slot = indexOf(key);
+        return used[slot] ? (V) values[slot] : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        int slot = indexOf(key);
+        if (used[slot]) {
+            V previous = (V) values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        if (++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    V computeIfAbsent(long key, LongFunction<? extends V> mappingFunction) {
+        V value = get(key);
+        if (value == null) {
+            value = mappingFunction.apply(key);
+            put(key, value);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int slot = indexOf(key);
+        if (!used[slot]) {
+            return null;
+        }
+        V previous = (V) values[slot];
+        size--;
+        // shift following entries of the probe chain back into the hole
+        int mask = keys.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (used[next]) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        used[hole] = false;
+        values[hole] = null;
+        return previous;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEachValue(Consumer<? super V> action) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                action.accept((V) values[i]);
+            }
+        }
+    }
+
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        boolean[] oldUsed = used;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        used = new boolean[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                put(oldKeys[i], (V) oldValues[i]);
+            }
+        }
+    }
+
+    // murmur3 fmix64: spreads sequential ids across the table
+    static int hash(long key) {
+        return (int) mix64(key);
+    }
+
+    // the full 64 bits, for sketches that need more than a table index
+    static long mix64(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(keys[i]).append('=').append(values[i]);
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
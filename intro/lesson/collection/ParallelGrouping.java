@@ -0,0 +1,107 @@
+package lesson.collection;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Parallel group-by that runs on a ForkJoinPool chosen by the caller.
+ *
+ * groupingByConcurrent shares one ConcurrentHashMap between all threads, so a few hot
+ * keys (a handful of departments) turn into contention on the same bins. Here every
+ * leaf task groups its own slice of the input into a private map, and the partial maps
+ * are merged pairwise on the way back up. No map is ever written by two threads.
+ *
+ * With ordered = true the merge always appends the right slice after the left one, so
+ * keys come out in first-encounter order and every group keeps input order, exactly
+ * like a sequential LinkedHashMap grouping.
+ */
+final class ParallelGrouping {
+
+    // leaves per worker, small enough to even out uneven slices
+    private static final int LEAVES_PER_THREAD = 4;
+    private static final int MIN_LEAF_SIZE = 1 << 12;
+
+    private ParallelGrouping() {
+    }
+
+    static <T, K> Map<K, List<T>> groupingBy(List<T> items, Function<? super T, ? extends K> classifier,
+                                             ForkJoinPool pool, boolean ordered) {
+        return groupingByKeys(items, (item, keys) -> keys.accept(classifier.apply(item)), pool, ordered);
+    }
+
+    /**
+     * Group-by where one item can land in several groups (a hero in many departments).
+     * The key emitter hands every key of the item to the given consumer.
+     */
+    static <T, K> Map<K, List<T>> groupingByKeys(List<T> items, BiConsumer<? super T, Consumer<K>> keyEmitter,
+                                                 ForkJoinPool pool, boolean ordered) {
+        // leaves index into the list, which must not cost a walk from the head each time
+        List<T> indexed = items instanceof RandomAccess ? items : new ArrayList<>(items);
+        int leaves = Math.max(1, pool.getParallelism() * LEAVES_PER_THREAD);
+        int leafSize = Math.max(MIN_LEAF_SIZE, (indexed.size() + leaves - 1) / leaves);
+        return pool.invoke(new GroupTask<>(indexed, 0, indexed.size(), leafSize, keyEmitter, ordered));
+    }
+
+    // ForkJoinTask is Serializable, but these tasks never leave the pool
+    @SuppressWarnings("serial")
+    private static final class GroupTask<T, K> extends RecursiveTask<Map<K, List<T>>> {
+        private final List<T> items;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final BiConsumer<? super T, Consumer<K>> keyEmitter;
+        private final boolean ordered;
+
+        GroupTask(List<T> items, int from, int to, int leafSize,
+                  BiConsumer<? super T, Consumer<K>> keyEmitter, boolean ordered) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.keyEmitter = keyEmitter;
+            this.ordered = ordered;
+        }
+
+        @Override
+        protected Map<K, List<T>> compute() {
+            if (to - from <= leafSize) {
+                Map<K, List<T>> partial = ordered ? new LinkedHashMap<>() : new HashMap<>();
+                for (int i = from; i < to; i++) {
+                    T item = items.get(i);
+                    keyEmitter.accept(item, key -> partial.computeIfAbsent(key, k -> new ArrayList<>()).add(item));
+                }
+                return partial;
+            }
+            int middle = (from + to) >>> 1;
+            GroupTask<T, K> right = new GroupTask<>(items, middle, to, leafSize, keyEmitter, ordered);
+            right.fork();
+            Map<K, List<T>> left = new GroupTask<>(items, from, middle, leafSize, keyEmitter, ordered).compute();
+            return merge(left, right.join());
+        }
+
+        private Map<K, List<T>> merge(Map<K, List<T>> left, Map<K, List<T>> right) {
+            if (!ordered && left.size() < right.size()) {
+                // order does not matter, so fold the smaller map into the bigger one
+                Map<K, List<T>> swap = left;
+                left = right;
+                right = swap;
+            }
+            for (Map.Entry<K, List<T>> entry : right.entrySet()) {
+                List<T> existing = left.putIfAbsent(entry.getKey(), entry.getValue());
+                if (existing != null) {
+                    existing.addAll(entry.getValue());
+                }
+            }
+            return left;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package lesson.collection;
+
+import java.util.Arrays;
+
+/**
+ * Immutable hash array mapped trie (HAMT) with structural sharing.
+ *
+ * Each level consumes 5 bits of the key's hash. A node stores a 32-bit bitmap of the
+ * slots in use and a compact array holding only those slots, each either a key/value
+ * pair or a child node. put copies one path from the root (O(log32 n)) and leaves the
+ * previous version intact, so old references work as free snapshots.
+ *
+ * Keys with identical hashes end up in a small collision node. Only get and put are
+ * provided, which is all the task snapshots need. Null keys are not allowed.
+ */
+final class PersistentHashMap<K, V> {
+
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(BitmapNode.EMPTY, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(K key) {
+        return (V) root.get(0, key.hashCode(), key);
+    }
+
+    boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * A map with the key bound to the value. Returns this map if nothing changes.
+     */
+    PersistentHashMap<K, V> put(K key, V value) {
+        boolean[] added = new boolean[1];
+        Node newRoot = root.put(0, key.hashCode(), key, value, added);
+        return newRoot == root ? this : new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    private interface Node {
+        Object get(int shift, int hash, Object key);
+
+        Node put(int shift, int hash, Object key, Object value, boolean[] added);
+    }
+
+    private static final class BitmapNode implements Node {
+        static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        // key, value pairs; a null key means the value is a child Node
+        private final Object[] array;
+
+        BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        @Override
+        public Object get(int shift, int hash, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int index = index(bit);
+            Object storedKey = array[2 * index];
+            Object value = array[2 * index + 1];
+            if (storedKey == null) {
+                return ((Node) value).get(shift + 5, hash, key);
+            }
+            return key.equals(storedKey) ? value : null;
+        }
+
+        @Override
+        public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                int count = Integer.bitCount(bitmap);
+                Object[] newArray = new Object[2 * (count + 1)];
+                System.arraycopy(array, 0, newArray, 0, 2 * index);
+                newArray[2 * index] = key;
+                newArray[2 * index + 1] = value;
+                System.arraycopy(array, 2 * index, newArray, 2 * (index + 1), 2 * (count - index));
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+            Object storedKey = array[2 * index];
+            Object storedValue = array[2 * index + 1];
+            if (storedKey == null) {
+                Node child = ((Node) storedValue).put(shift + 5, hash, key, value, added);
+                return child == storedValue ? this : withSlot(2 * index + 1, child);
+            }
+            if (key.equals(storedKey)) {
+                return value == storedValue ? this : withSlot(2 * index + 1, value);
+            }
+            added[0] = true;
+            Node child = twoEntries(shift + 5, storedKey, storedValue, hash, key, value);
+            Object[] newArray = array.clone();
+            newArray[2 * index] = null;
+            newArray[2 * index + 1] = child;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private BitmapNode withSlot(int slot, Object value) {
+            Object[] newArray = array.clone();
+            newArray[slot] = value;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & 31);
+        }
+
+        private static Node twoEntries(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = key1.hashCode();
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[] {key1, value1, key2, value2});
+            }
+            boolean[] ignored = new boolean[1];
+            return EMPTY.put(shift, hash1, key1, value1, ignored).put(shift, hash2, key2, value2, ignored);
+        }
+    }
+
+    private static final class CollisionNode implements Node {
+        private final int hash;
+        private final Object[] array;
+
+        CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        @Override
+        public Object get(int shift, int hash, Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return array[i + 1];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // different hash: push this node one level down behind a bitmap node
+                BitmapNode parent = new BitmapNode(BitmapNode.bit(this.hash, shift), new Object[] {null, this});
+                return parent.put(shift, hash, key, value, added);
+            }
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    if (array[i + 1] == value) {
+                        return this;
+                    }
+                    Object[] newArray = array.clone();
+                    newArray[i + 1] = value;
+                    return new CollisionNode(hash, newArray);
+                }
+            }
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, newArray);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package lesson.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import lesson.collection.SeqCollectionExampleSolution.Task;
+
+/**
+ * Counting sort behind SeqCollectionExampleSolution.bonusChallenge.
+ *
+ * Produces exactly what the LinkedHashMap/LinkedHashSet version did - priority groups
+ * in reverse order of first appearance, tasks in arrival order inside a group, equal
+ * tasks kept once - but with plain int arrays instead of hash structures:
+ * 1. count tasks per priority (priorities are small, so they index an array directly)
+ * 2. turn the counts into write offsets in reverse first-seen order
+ * 3. scatter every task straight into a presized Task[]
+ *
+ * The parallel path splits the input into chunks, counts each chunk on the common
+ * ForkJoinPool, and gives every chunk its own offsets so the scatter stays stable.
+ * Each chunk needs an int per priority in three tables, so the chunk count is capped
+ * to keep chunks x priorities within CELLS_PER_TASK per task; with a wide priority
+ * range that leaves fewer chunks, down to the sequential sort.
+ *
+ * Inputs outside the fast path's assumptions (a priority range wider than the
+ * input, or duplicated task ids that may need dedup) go through the original
+ * map-based grouping instead.
+ */
+final class PriorityBucketSort {
+
+    // below this the chunk bookkeeping costs more than it saves
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+    // bound on chunks x priorities per task, each cell costing three ints
+    static final int CELLS_PER_TASK = 2;
+
+    private PriorityBucketSort() {
+    }
+
+    static List<Task> flattenReversed(List<Task> tasks) {
+        return flatten(tasks, false);
+    }
+
+    static List<Task> flattenReversedParallel(List<Task> tasks) {
+        return flatten(tasks, tasks.size() >= PARALLEL_THRESHOLD);
+    }
+
+    private static List<Task> flatten(List<Task> taskList, boolean parallel) {
+        Task[] tasks = taskList.toArray(new Task[0]);
+        int n = tasks.length;
+        if (n == 0) {
+            return new ArrayList<>();
+        }
+
+        int minPriority = Integer.MAX_VALUE;
+        int maxPriority = Integer.MIN_VALUE;
+        for (Task task : tasks) {
+            minPriority = Math.min(minPriority, task.priority());
+            maxPriority = Math.max(maxPriority, task.priority());
+        }
+        long span = (long) maxPriority - minPriority + 1;
+        if (span > n + 1024L || hasDuplicateIds(tasks)) {
+            return groupWithMaps(taskList);
+        }
+
+        int buckets = (int) span;
+        int chunks = parallel ? chunksFor(n, buckets) : 1;
+        int chunkSize = (n + chunks - 1) / chunks;
+        int[][] counts = new int[chunks][buckets];
+        int[][] firstSeen = new int[chunks][buckets];
+        int base = minPriority;
+
+        IntStream chunkIds = IntStream.range(0, chunks);
+        (parallel ? chunkIds.parallel() : chunkIds).forEach(c -> {
+            int[] count = counts[c];
+            int[] first = firstSeen[c];
+            Arrays.fill(first, Integer.MAX_VALUE);
+            for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+                int bucket = tasks[i].priority() - base;
+                if (count[bucket]++ == 0) {
+                    first[bucket] = i;
+                }
+            }
+        });
+
+        // order the priorities that occur by first appearance, then walk it backwards
+        int[] firstIndex = new int[buckets];
+        Arrays.fill(firstIndex, Integer.MAX_VALUE);
+        for (int c = 0; c < chunks; c++) {
+            for (int b = 0; b < buckets; b++) {
+                firstIndex[b] = Math.min(firstIndex[b], firstSeen[c][b]);
+            }
+        }
+        // pack (first index, bucket) into longs so a primitive sort gives the order
+        long[] order = new long[buckets];
+        int present = 0;
+        for (int b = 0; b < buckets; b++) {
+            if (firstIndex[b] != Integer.MAX_VALUE) {
+                order[present++] = ((long) firstIndex[b] << 32) | b;
+            }
+        }
+        Arrays.sort(order, 0, present);
+
+        int[][] offsets = new int[chunks][buckets];
+        int next = 0;
+        for (int k = present - 1; k >= 0; k--) {
+            int bucket = (int) order[k];
+            for (int c = 0; c < chunks; c++) {
+                offsets[c][bucket] = next;
+                next += counts[c][bucket];
+            }
+        }
+
+        Task[] result = new Task[n];
+        IntStream scatterIds = IntStream.range(0, chunks);
+        (parallel ? scatterIds.parallel() : scatterIds).forEach(c -> {
+            int[] offset = offsets[c];
+            for (int i = c * chunkSize, end = Math.min(n, i + chunkSize); i < end; i++) {
+                result[offset[tasks[i].priority() - base]++] = tasks[i];
+            }
+        });
+        // a mutable ArrayList, like the other paths and the original grouping
+        return new ArrayList<>(Arrays.asList(result));
+    }
+
+    private static int chunksFor(int n, int buckets) {
+        int wanted = Math.min(n / (PARALLEL_THRESHOLD / 4), 4 * Runtime.getRuntime().availableProcessors());
+        long affordable = (long) CELLS_PER_TASK * n / buckets;
+        return (int) Math.max(1, Math.min(wanted, affordable));
+    }
+
+    // Equal tasks share an id, so without repeated ids there is nothing to dedup.
+    private static boolean hasDuplicateIds(Task[] tasks) {
+        int minId = Integer.MAX_VALUE;
+        int maxId = Integer.MIN_VALUE;
+        for (Task task : tasks) {
+            minId = Math.min(minId, task.id());
+            maxId = Math.max(maxId, task.id());
+        }
+        long idSpan = (long) maxId - minId + 1;
+        if (idSpan <= 64L * tasks.length) {
+            long[] seen = new long[(int) ((idSpan + 63) >>> 6)];
+            for (Task task : tasks) {
+                // the span can pass Integer.MAX_VALUE for tens of millions of tasks
+                int bit = (int) ((long) task.id() - minId);
+                long mask = 1L << bit;
+                if ((seen[bit >>> 6] & mask) != 0) {
+                    return true;
+                }
+                seen[bit >>> 6] |= mask;
+            }
+            return false;
+        }
+        int[] ids = new int[tasks.length];
+        for (int i = 0; i < tasks.length; i++) {
+            ids[i] = tasks[i].id();
+        }
+        Arrays.sort(ids);
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] == ids[i - 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The original grouping, used when the counting sort does not apply
+    static List<Task> groupWithMaps(List<Task> tasks) {
+        LinkedHashMap<Integer, LinkedHashSet<Task>> groupedTasks = new LinkedHashMap<>();
+        tasks.forEach(task -> groupedTasks.computeIfAbsent(task.priority(), k -> new LinkedHashSet<>()).add(task));
+        ArrayList<Task> result = new ArrayList<>();
+        groupedTasks.reversed().forEach((priority, taskSet) -> result.addAll(taskSet));
+        return result;
+    }
+}
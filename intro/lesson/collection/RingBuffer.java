@@ -0,0 +1,338 @@
+package lesson.collection;
+
+import java.util.AbstractCollection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.SequencedCollection;
+
+/**
+ * Array-backed ring buffer that implements SequencedCollection.
+ *
+ * Head and tail wrap around one Object[], so addFirst/addLast/removeFirst/removeLast
+ * are O(1) without shifting (ArrayList.addFirst moves every element) and without a
+ * node per element (LinkedList, LinkedHashSet). reversed() is a live view over the
+ * same array, nothing is copied.
+ *
+ * Two modes:
+ * - growable: doubles the array when full
+ * - bounded:  keeps a fixed capacity and, when full, drops the element at the other
+ *   end (addLast overwrites the oldest), which gives a sliding window of recent items
+ *
+ * Nulls are not allowed. Iterators are fail-fast. Not thread-safe.
+ */
+public class RingBuffer<E> extends AbstractCollection<E> implements SequencedCollection<E> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] elements;
+    private int head;
+    private int size;
+    private final boolean bounded;
+    private int modCount;
+
+    private RingBuffer(int capacity, boolean bounded) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        this.elements = new Object[capacity];
+        this.bounded = bounded;
+    }
+
+    public RingBuffer() {
+        this(DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * A buffer that grows as needed, starting with the given capacity.
+     */
+    public static <E> RingBuffer<E> growable(int initialCapacity) {
+        return new RingBuffer<>(initialCapacity, false);
+    }
+
+    /**
+     * A buffer that never holds more than capacity elements and overwrites the
+     * element at the opposite end once it is full.
+     */
+    public static <E> RingBuffer<E> overwritingOldest(int capacity) {
+        return new RingBuffer<>(capacity, true);
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    public boolean isFull() {
+        return size == elements.length;
+    }
+
+    @Override
+    public boolean add(E element) {
+        addLast(element);
+        return true;
+    }
+
+    @Override
+    public void addFirst(E element) {
+        Objects.requireNonNull(element);
+        if (size == elements.length) {
+            if (bounded) {
+                // drop the newest to make room at the front
+                elements[slot(size - 1)] = null;
+                size--;
+            } else {
+                grow();
+            }
+        }
+        head = dec(head);
+        elements[head] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void addLast(E element) {
+        Objects.requireNonNull(element);
+        if (size == elements.length) {
+            if (bounded) {
+                // overwrite the oldest
+                elements[head] = element;
+                head = inc(head);
+                modCount++;
+                return;
+            }
+            grow();
+        }
+        elements[slot(size)] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public E getFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elementAt(head);
+    }
+
+    @Override
+    public E getLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return elementAt(slot(size - 1));
+    }
+
+    public E get(int index) {
+        Objects.checkIndex(index, size);
+        return elementAt(slot(index));
+    }
+
+    @Override
+    public E removeFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        E element = elementAt(head);
+        elements[head] = null;
+        head = inc(head);
+        size--;
+        modCount++;
+        return element;
+    }
+
+    @Override
+    public E removeLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int last = slot(size - 1);
+        E element = elementAt(last);
+        elements[last] = null;
+        size--;
+        modCount++;
+        return element;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            elements[slot(i)] = null;
+        }
+        head = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new RingIterator(false);
+    }
+
+    @Override
+    public SequencedCollection<E> reversed() {
+        return new ReversedView();
+    }
+
+    /**
+     * Removes the element at a logical index, shifting the shorter side over the gap.
+     */
+    E remove(int index) {
+        Objects.checkIndex(index, size);
+        E element = elementAt(slot(index));
+        if (index < size / 2) {
+            for (int i = index; i > 0; i--) {
+                elements[slot(i)] = elements[slot(i - 1)];
+            }
+            elements[head] = null;
+            head = inc(head);
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                elements[slot(i)] = elements[slot(i + 1)];
+            }
+            elements[slot(size - 1)] = null;
+        }
+        size--;
+        modCount++;
+        return element;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(int slot) {
+        return (E) elements[slot];
+    }
+
+    private int slot(int index) {
+        int slot = head + index;
+        return slot >= elements.length ? slot - elements.length : slot;
+    }
+
+    private int inc(int slot) {
+        return ++slot == elements.length ? 0 : slot;
+    }
+
+    private int dec(int slot) {
+        return (slot == 0 ? elements.length : slot) - 1;
+    }
+
+    private void grow() {
+        Object[] larger = new Object[elements.length * 2];
+        for (int i = 0; i < size; i++) {
+            larger[i] = elements[slot(i)];
+        }
+        elements = larger;
+        head = 0;
+    }
+
+    private final class RingIterator implements Iterator<E> {
+        private final boolean descending;
+        private int next;
+        private int lastReturned = -1;
+        private int expectedModCount = modCount;
+
+        RingIterator(boolean descending) {
+            this.descending = descending;
+            this.next = descending ? size - 1 : 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return descending ? next >= 0 : next < size;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastReturned = next;
+            next += descending ? -1 : 1;
+            return elementAt(slot(lastReturned));
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            RingBuffer.this.remove(lastReturned);
+            if (!descending) {
+                next = lastReturned;
+            }
+            lastReturned = -1;
+            expectedModCount = modCount;
+        }
+    }
+
+    private final class ReversedView extends AbstractCollection<E> implements SequencedCollection<E> {
+
+        @Override
+        public Iterator<E> iterator() {
+            return new RingIterator(true);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean add(E element) {
+            RingBuffer.this.addFirst(element);
+            return true;
+        }
+
+        @Override
+        public void addFirst(E element) {
+            RingBuffer.this.addLast(element);
+        }
+
+        @Override
+        public void addLast(E element) {
+            RingBuffer.this.addFirst(element);
+        }
+
+        @Override
+        public E getFirst() {
+            return RingBuffer.this.getLast();
+        }
+
+        @Override
+        public E getLast() {
+            return RingBuffer.this.getFirst();
+        }
+
+        @Override
+        public E removeFirst() {
+            return RingBuffer.this.removeLast();
+        }
+
+        @Override
+        public E removeLast() {
+            return RingBuffer.this.removeFirst();
+        }
+
+        @Override
+        public void clear() {
+            RingBuffer.this.clear();
+        }
+
+        @Override
+        public SequencedCollection<E> reversed() {
+            return RingBuffer.this;
+        }
+    }
+}
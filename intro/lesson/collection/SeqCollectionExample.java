@@ -113,7 +113,27 @@ public class SeqCollectionExample {
         System.out.println("Removed last: " + taskMap.pollLastEntry());
     }
 
-    
+    public void demonstrateRingBuffer() {
+        System.out.println("\n=== Demonstrating SequencedCollection with a RingBuffer ===");
+
+        // ArrayList.addFirst shifts every element; a ring buffer just moves its head
+        RingBuffer<Task> tasks = new RingBuffer<>();
+        createSampleTasks().forEach(tasks::addLast);
+        tasks.addFirst(new Task(0, "Plan sprint", 1));
+
+        System.out.println("First task: " + tasks.getFirst());
+        System.out.println("Last task: " + tasks.getLast());
+
+        // reversed() is a view over the same array, nothing is copied
+        System.out.println("\nTasks in reverse order:");
+        tasks.reversed().forEach(System.out::println);
+
+        // Bounded mode keeps a sliding window of the most recent tasks
+        RingBuffer<Task> recentTasks = RingBuffer.overwritingOldest(3);
+        createSampleTasks().forEach(recentTasks::addLast);
+        System.out.println("\nLast 3 tasks seen: " + recentTasks);
+    }
+
     public static void main(String[] args) {
         SeqCollectionExample demo = new SeqCollectionExample();
         
@@ -121,6 +141,7 @@ public class SeqCollectionExample {
         demo.demonstrateSequencedList();
         demo.demonstrateSequencedSet();
         demo.demonstrateSequencedMap();
+        demo.demonstrateRingBuffer();
         
         System.out.println("\n=== When to use Sequenced Collections ===");
         System.out.println("1. When you need ordered data with first/last access");
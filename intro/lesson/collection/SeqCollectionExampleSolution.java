@@ -1,6 +1,15 @@
 package lesson.collection;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class SeqCollectionExampleSolution {
     
@@ -80,82 +89,442 @@ public class SeqCollectionExampleSolution {
 
     /**
      * Solution for Exercise 4: Advanced Operations
+     *
+     * Backed by a binary min-heap instead of a sorted ArrayList, so add and remove
+     * are O(log n) rather than an O(n) scan + shift. Every task gets an arrival
+     * sequence number which breaks ties, keeping FIFO order within a priority.
+     * Like the sorted list it replaces, it accepts several queued tasks with the same
+     * id; removeTask and updatePriority then act on the one queued first.
      */
     public class PriorityTaskList {
-        private final List<Task> tasks;
+        private static final int DEFAULT_CAPACITY = 16;
+
+        private Task[] heap;
+        private long[] arrivals;
+        private int size;
+        private long nextArrival;
+        // task id -> current slot in the heap, kept in sync on every swap. With
+        // duplicate ids only the earliest queued task is mapped; the others are counted
+        // per id, so only removing an id that has duplicates pays for a rescan
+        private final Map<Integer, Integer> slotById;
+        private final Map<Integer, Integer> unmappedDuplicates;
+        // sorted snapshot built on demand, dropped on every mutation
+        private List<Task> sortedView;
 
         public PriorityTaskList() {
-            this.tasks = new ArrayList<>();
+            this.heap = new Task[DEFAULT_CAPACITY];
+            this.arrivals = new long[DEFAULT_CAPACITY];
+            this.slotById = new HashMap<>();
+            this.unmappedDuplicates = new HashMap<>();
         }
 
         public void addTask(Task task) {
-            // Find the correct position to insert based on priority
-            int insertIndex = 0;
-            for (Task t : tasks) {
-                if (task.priority() >= t.priority()) {
-                    insertIndex++;
-                } else {
-                    break;
-                }
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+                arrivals = Arrays.copyOf(arrivals, size * 2);
+            }
+            heap[size] = task;
+            arrivals[size] = nextArrival++;
+            if (slotById.putIfAbsent(task.id(), size) != null) {
+                unmappedDuplicates.merge(task.id(), 1, Integer::sum);
             }
-            tasks.add(insertIndex, task);
+            siftUp(size++);
+            sortedView = null;
         }
 
         public Task removeHighestPriority() {
-            return tasks.isEmpty() ? null : tasks.removeFirst();
+            return size == 0 ? null : removeAt(0);
+        }
+
+        public Task peekHighestPriority() {
+            return size == 0 ? null : heap[0];
+        }
+
+        /**
+         * Removes the queued task with the given id, or returns null when there is none.
+         */
+        public Task removeTask(int taskId) {
+            Integer slot = slotById.get(taskId);
+            return slot == null ? null : removeAt(slot);
         }
 
+        /**
+         * Moves a queued task to a new priority (decrease-key, or increase-key).
+         * The task keeps its original arrival, so it stays ahead of later arrivals
+         * that share its new priority.
+         */
+        public boolean updatePriority(int taskId, int newPriority) {
+            Integer slot = slotById.get(taskId);
+            if (slot == null) {
+                return false;
+            }
+            Task current = heap[slot];
+            heap[slot] = new Task(current.id(), current.description(), newPriority);
+            if (newPriority < current.priority()) {
+                siftUp(slot);
+            } else {
+                siftDown(slot);
+            }
+            sortedView = null;
+            return true;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * The queue in priority order, as a new list the caller may modify. Sorting
+         * happens on first access after a change and is cached, so enqueue never pays
+         * for it; each call only copies.
+         */
         public List<Task> getAllTasksByPriority() {
-            return new ArrayList<>(tasks);
+            if (sortedView == null) {
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    order[i] = i;
+                }
+                Arrays.sort(order, (a, b) -> compareSlots(a, b));
+                Task[] sorted = new Task[size];
+                for (int i = 0; i < size; i++) {
+                    sorted[i] = heap[order[i]];
+                }
+                sortedView = Arrays.asList(sorted);
+            }
+            return new ArrayList<>(sortedView);
+        }
+
+        private Task removeAt(int slot) {
+            Task removed = heap[slot];
+            boolean mapped = slotById.remove(removed.id(), slot);
+            int last = --size;
+            if (slot != last) {
+                move(last, slot);
+                heap[last] = null;
+                siftDown(slot);
+                siftUp(slot);
+            } else {
+                heap[last] = null;
+            }
+            if (!mapped) {
+                dropUnmappedDuplicate(removed.id());
+            } else if (unmappedDuplicates.containsKey(removed.id())) {
+                mapEarliestDuplicate(removed.id());
+            }
+            sortedView = null;
+            return removed;
+        }
+
+        // Rare path: a mapped task left while another with its id is still queued, so
+        // the scan always finds one
+        private void mapEarliestDuplicate(int taskId) {
+            int earliest = -1;
+            for (int i = 0; i < size; i++) {
+                if (heap[i].id() == taskId && (earliest < 0 || arrivals[i] < arrivals[earliest])) {
+                    earliest = i;
+                }
+            }
+            slotById.put(taskId, earliest);
+            dropUnmappedDuplicate(taskId);
+        }
+
+        private void dropUnmappedDuplicate(int taskId) {
+            unmappedDuplicates.computeIfPresent(taskId, (id, count) -> count == 1 ? null : count - 1);
+        }
+
+        private void siftUp(int slot) {
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (compareSlots(slot, parent) >= 0) {
+                    break;
+                }
+                swap(slot, parent);
+                slot = parent;
+            }
+        }
+
+        private void siftDown(int slot) {
+            while (true) {
+                int smallest = slot;
+                int left = 2 * slot + 1;
+                int right = left + 1;
+                if (left < size && compareSlots(left, smallest) < 0) {
+                    smallest = left;
+                }
+                if (right < size && compareSlots(right, smallest) < 0) {
+                    smallest = right;
+                }
+                if (smallest == slot) {
+                    return;
+                }
+                swap(slot, smallest);
+                slot = smallest;
+            }
+        }
+
+        private int compareSlots(int a, int b) {
+            int byPriority = Integer.compare(heap[a].priority(), heap[b].priority());
+            return byPriority != 0 ? byPriority : Long.compare(arrivals[a], arrivals[b]);
+        }
+
+        private void swap(int a, int b) {
+            Task task = heap[a];
+            long arrival = arrivals[a];
+            heap[a] = heap[b];
+            arrivals[a] = arrivals[b];
+            heap[b] = task;
+            arrivals[b] = arrival;
+            if (task.id() == heap[a].id()) {
+                // same id: only one of the two slots can be the mapped one
+                slotById.computeIfPresent(task.id(), (id, slot) -> slot == a ? b : slot == b ? a : slot);
+            } else {
+                slotById.replace(task.id(), a, b);
+                slotById.replace(heap[a].id(), b, a);
+            }
+        }
+
+        private void move(int from, int to) {
+            heap[to] = heap[from];
+            arrivals[to] = arrivals[from];
+            slotById.replace(heap[to].id(), from, to);
         }
     }
 
     /**
      * Solution for Exercise 5: Real-world Scenario
+     *
+     * Striped by priority: every bucket is an immutable value built from persistent
+     * collections (PersistentHashMap, PersistentVector) behind its own AtomicReference.
+     * addTask copies only the path it changes in its bucket, O(log n), and publishes it
+     * with a compare-and-set, so only writers of the same priority can make each other
+     * retry. Priorities keep the order in which they were first seen, same as the
+     * LinkedHashMap version; that order is a persistent vector of its own, written only
+     * when a new priority shows up, after its bucket already holds the first task.
+     *
+     * Readers get read-only views over bucket snapshots: no task is copied, later writes
+     * never show up in a view already handed out, and writers never wait for readers.
+     * getAllTasksReversed takes one snapshot per priority, one after the other, so it
+     * is not a single atomic cut across priorities.
+     *
+     * Opened on a directory, the manager is durable: every new task is written to a
+     * TaskWriteAheadLog before it becomes visible, and the log is replayed on startup.
      */
-    public class TaskManager {
-        private final LinkedHashMap<Integer, LinkedHashSet<Task>> tasksByPriority;
+    public class TaskManager implements AutoCloseable {
+        private final ConcurrentHashMap<Integer, AtomicReference<Bucket>> buckets = new ConcurrentHashMap<>();
+        private final AtomicReference<PersistentVector<Integer>> priorityOrder =
+                new AtomicReference<>(PersistentVector.empty());
+        private final TaskWriteAheadLog log;
+
+        private record Bucket(PersistentHashMap<Task, Boolean> members, PersistentVector<Task> inInsertionOrder) {
+            static final Bucket EMPTY = new Bucket(PersistentHashMap.empty(), PersistentVector.empty());
+
+            Bucket with(Task task) {
+                return new Bucket(members.put(task, Boolean.TRUE), inInsertionOrder.append(task));
+            }
+        }
 
         public TaskManager() {
-            this.tasksByPriority = new LinkedHashMap<>();
+            this.log = null;
+        }
+
+        /**
+         * A manager that recovers its tasks from the directory and logs every add there.
+         * Concurrent adds share an fsync; each waits at most about fsyncInterval for it.
+         */
+        public TaskManager(Path logDirectory, Duration fsyncInterval) {
+            this.log = TaskWriteAheadLog.open(logDirectory, fsyncInterval, this::apply);
         }
 
         public void addTask(Task task) {
-            tasksByPriority.computeIfAbsent(task.priority(), k -> new LinkedHashSet<>())
-                          .add(task);
+            if (log != null) {
+                if (contains(task)) {
+                    return;
+                }
+                // write ahead: the log applies the task once it is durable, in log order
+                log.append(task);
+            } else {
+                apply(task);
+            }
+        }
+
+        /**
+         * Folds the log into a snapshot so the next startup replays less.
+         */
+        public void compactLog() {
+            if (log != null) {
+                log.compact();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (log != null) {
+                log.close();
+            }
+        }
+
+        private boolean contains(Task task) {
+            AtomicReference<Bucket> root = buckets.get(task.priority());
+            return root != null && root.get().members().containsKey(task);
+        }
+
+        private void apply(Task task) {
+            AtomicReference<Bucket> root = buckets.get(task.priority());
+            if (root == null) {
+                // a new bucket starts out holding the task, so no reader sees it empty
+                AtomicReference<Bucket> created = new AtomicReference<>(Bucket.EMPTY.with(task));
+                root = buckets.putIfAbsent(task.priority(), created);
+                if (root == null) {
+                    priorityOrder.updateAndGet(order -> order.append(task.priority()));
+                    return;
+                }
+            }
+            while (true) {
+                Bucket current = root.get();
+                if (current.members().containsKey(task) || root.compareAndSet(current, current.with(task))) {
+                    return;
+                }
+            }
         }
 
         public Set<Task> getTasksByPriority(int priority) {
-            return tasksByPriority.getOrDefault(priority, new LinkedHashSet<>());
+            AtomicReference<Bucket> root = buckets.get(priority);
+            return new BucketView(root == null ? Bucket.EMPTY : root.get());
         }
 
         public Map<Integer, Set<Task>> getAllTasksReversed() {
-            LinkedHashMap<Integer, Set<Task>> reversed = new LinkedHashMap<>();
-            tasksByPriority.reversed().forEach((priority, tasks) -> 
-                reversed.put(priority, new LinkedHashSet<>(tasks)));
-            return reversed;
+            // every priority in the order already has a non-empty bucket
+            PersistentVector<Integer> order = priorityOrder.get();
+            Map<Integer, Bucket> snapshot = new HashMap<>();
+            for (Integer priority : order) {
+                snapshot.put(priority, buckets.get(priority).get());
+            }
+            return new ReversedView(order, snapshot);
+        }
+
+        // read-only set over one bucket of a snapshot, in insertion order
+        private static final class BucketView extends AbstractSet<Task> {
+            private final Bucket bucket;
+
+            BucketView(Bucket bucket) {
+                this.bucket = bucket;
+            }
+
+            @Override
+            public Iterator<Task> iterator() {
+                return bucket.inInsertionOrder().iterator();
+            }
+
+            @Override
+            public int size() {
+                return bucket.inInsertionOrder().size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return o instanceof Task task && bucket.members().containsKey(task);
+            }
+        }
+
+        // read-only map over bucket snapshots, priorities in reverse first-seen order
+        private static final class ReversedView extends AbstractMap<Integer, Set<Task>> {
+            private final PersistentVector<Integer> order;
+            private final Map<Integer, Bucket> snapshot;
+
+            ReversedView(PersistentVector<Integer> order, Map<Integer, Bucket> snapshot) {
+                this.order = order;
+                this.snapshot = snapshot;
+            }
+
+            @Override
+            public Set<Task> get(Object key) {
+                Bucket bucket = snapshot.get(key);
+                return bucket == null ? null : new BucketView(bucket);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return snapshot.containsKey(key);
+            }
+
+            @Override
+            public Set<Entry<Integer, Set<Task>>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<Integer, Set<Task>>> iterator() {
+                        Iterator<Integer> priorities = order.descendingIterator();
+                        return new Iterator<>() {
+                            @Override
+                            public boolean hasNext() {
+                                return priorities.hasNext();
+                            }
+
+                            @Override
+                            public Entry<Integer, Set<Task>> next() {
+                                Integer priority = priorities.next();
+                                return Map.entry(priority, new BucketView(snapshot.get(priority)));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return order.size();
+                    }
+                };
+            }
         }
     }
 
     /**
      * Solution for Bonus Challenge
+     *
+     * Priorities are small integers, so instead of a LinkedHashMap of LinkedHashSets
+     * the tasks are counting-sorted straight into a presized array (see PriorityBucketSort).
      */
     public List<Task> bonusChallenge(List<Task> tasks) {
-        // Create a map to group tasks by priority
-        LinkedHashMap<Integer, LinkedHashSet<Task>> groupedTasks = new LinkedHashMap<>();
-        
-        // Group tasks by priority and sort by ID within each group
-        tasks.forEach(task -> {
-            groupedTasks.computeIfAbsent(task.priority(), k -> new LinkedHashSet<>())
-                       .add(task);
-        });
-        
-        // Create result list in reverse priority order
-        ArrayList<Task> result = new ArrayList<>();
-        groupedTasks.reversed().forEach((priority, taskSet) -> 
-            result.addAll(taskSet));
-            
-        return result;
+        return PriorityBucketSort.flattenReversed(tasks);
+    }
+
+    /**
+     * Same result as bonusChallenge, counted and scattered in chunks on the common pool
+     * for large inputs.
+     */
+    public List<Task> bonusChallengeParallel(List<Task> tasks) {
+        return PriorityBucketSort.flattenReversedParallel(tasks);
+    }
+
+    /**
+     * The k most urgent tasks (lowest priority number first, FIFO among equals) in
+     * every bucket, without grouping and sorting all of them. Pass a parallel stream
+     * for large inputs; the result is the same.
+     */
+    public <K> Map<K, List<Task>> mostUrgentTasksPerBucket(Stream<Task> tasks, Function<Task, K> bucket, int k) {
+        return tasks.collect(TopKCollectors.topKPerGroup(bucket, k, Comparator.comparingInt(Task::priority)));
+    }
+
+    // Writers keep opening new priorities while a reader walks getAllTasksReversed;
+    // every priority listed must come with its non-empty bucket
+    private static boolean readersSeeWholeBuckets(SeqCollectionExampleSolution solution) {
+        TaskManager manager = solution.new TaskManager();
+        int writers = 4;
+        int tasksPerWriter = 5_000;
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int base = w * tasksPerWriter;
+            threads.add(Thread.ofPlatform().start(() -> {
+                for (int i = base; i < base + tasksPerWriter; i++) {
+                    manager.addTask(new Task(i, "Task " + i, i));
+                }
+            }));
+        }
+        boolean consistent = true;
+        while (threads.stream().anyMatch(Thread::isAlive)) {
+            for (Set<Task> bucket : manager.getAllTasksReversed().values()) {
+                consistent &= bucket != null && !bucket.isEmpty();
+            }
+        }
+        return consistent && manager.getAllTasksReversed().size() == writers * tasksPerWriter;
     }
 
     // Test the solutions
@@ -180,7 +549,11 @@ public class SeqCollectionExampleSolution {
         System.out.println("Removing highest priority tasks:");
         System.out.println(priorityList.removeHighestPriority());
         System.out.println(priorityList.removeHighestPriority());
-        
+        System.out.println("Bumping task 2 to priority 1 and dropping task 5:");
+        priorityList.updatePriority(2, 1);
+        priorityList.removeTask(5);
+        System.out.println(priorityList.getAllTasksByPriority());
+
         // Test TaskManager
         TaskManager manager = solution.new TaskManager();
         createSampleTasks().forEach(manager::addTask);
@@ -189,9 +562,28 @@ public class SeqCollectionExampleSolution {
         System.out.println(manager.getTasksByPriority(1));
         System.out.println("All tasks in reverse priority order:");
         System.out.println(manager.getAllTasksReversed());
+        System.out.println("Readers never see a priority without its bucket: "
+                + readersSeeWholeBuckets(solution));
         
         // Test Bonus Challenge
         System.out.println("\nBonus Challenge Solution:");
         System.out.println(solution.bonusChallenge(createSampleTasks()));
+
+        List<Task> manyTasks = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            manyTasks.add(new Task(i, "Task " + i, i % 7));
+        }
+        System.out.println("Parallel result matches map grouping: "
+                + solution.bonusChallengeParallel(manyTasks).equals(PriorityBucketSort.groupWithMaps(manyTasks)));
+
+        // top 10 per bucket of 100 ids, against grouping and sorting everything
+        Function<Task, Integer> bucketOf = task -> task.id() % 100;
+        Map<Integer, List<Task>> fullSort = manyTasks.stream().collect(Collectors.groupingBy(bucketOf,
+                Collectors.collectingAndThen(Collectors.toList(), bucket -> bucket.stream()
+                        .sorted(Comparator.comparingInt(Task::priority)).limit(10).toList())));
+        System.out.println("Top-10 per bucket matches group + sort: "
+                + solution.mostUrgentTasksPerBucket(manyTasks.stream(), bucketOf, 10).equals(fullSort)
+                + ", in parallel: "
+                + solution.mostUrgentTasksPerBucket(manyTasks.parallelStream(), bucketOf, 10).equals(fullSort));
     }
 }
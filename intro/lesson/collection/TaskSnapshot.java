@@ -0,0 +1,365 @@
+package lesson.collection;
+
+import static exercise.utils.SolutionValidation.assertWithPredicate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import lesson.collection.SeqCollectionExampleSolution.Task;
+
+/**
+ * Compact binary snapshot of Task records, read back through a memory-mapped file.
+ *
+ * Layout (little endian):
+ *   header   32 bytes  magic "TSNP", version, task count, description bytes, CRC32C of the body
+ *   records  16 bytes per task: id, priority, description offset, description length
+ *   strings  UTF-8 descriptions, back to back
+ *
+ * Opening a snapshot maps the file and checks the header; no task is decoded. Tasks
+ * are read through a TaskView flyweight that points into the mapped buffer, and a
+ * description String is only created when asked for. Checksum verification reads
+ * the whole file once and can be skipped when startup time matters more.
+ *
+ * A single mapping is limited to 2GB, which is roughly 50M tasks with short
+ * descriptions.
+ */
+final class TaskSnapshot {
+
+    static final int MAGIC = 0x504E5354; // "TSNP" read as a little-endian int
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 32;
+    static final int RECORD_BYTES = 16;
+
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+
+    private final MappedByteBuffer buffer;
+    private final int size;
+    private final int stringsStart;
+
+    private TaskSnapshot(MappedByteBuffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+        this.stringsStart = HEADER_BYTES + size * RECORD_BYTES;
+    }
+
+    /**
+     * Writes the tasks to the file, replacing it if it exists. The snapshot is written
+     * to a temporary sibling, forced to disk and then moved over the file atomically,
+     * so a crash or an error midway leaves the previous snapshot intact. The directory
+     * is forced after the move, so once this returns the new snapshot survives a crash.
+     */
+    static void write(Path file, Collection<Task> tasks) {
+        List<byte[]> descriptions = new ArrayList<>(tasks.size());
+        long stringBytes = 0;
+        for (Task task : tasks) {
+            byte[] description = task.description().getBytes(StandardCharsets.UTF_8);
+            descriptions.add(description);
+            stringBytes += description.length;
+        }
+        // record offsets are ints and a mapping is at most 2GB: refuse before touching any file
+        if (HEADER_BYTES + (long) descriptions.size() * RECORD_BYTES + stringBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Snapshot would exceed 2GB, split the tasks over several files");
+        }
+
+        Path absolute = file.toAbsolutePath();
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(absolute.getParent(), absolute.getFileName() + ".", ".tmp");
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                CRC32C checksum = new CRC32C();
+                ByteBuffer out = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                channel.position(HEADER_BYTES);
+
+                int offset = 0;
+                int index = 0;
+                for (Task task : tasks) {
+                    int length = descriptions.get(index++).length;
+                    if (out.remaining() < RECORD_BYTES) {
+                        flush(channel, out, checksum);
+                    }
+                    out.putInt(task.id()).putInt(task.priority()).putInt(offset).putInt(length);
+                    offset += length;
+                }
+                for (byte[] description : descriptions) {
+                    for (int written = 0; written < description.length; ) {
+                        if (!out.hasRemaining()) {
+                            flush(channel, out, checksum);
+                        }
+                        int chunk = Math.min(out.remaining(), description.length - written);
+                        out.put(description, written, chunk);
+                        written += chunk;
+                    }
+                }
+                flush(channel, out, checksum);
+
+                out.clear();
+                out.putInt(MAGIC).putInt(VERSION).putLong(descriptions.size()).putLong(stringBytes)
+                        .putLong(checksum.getValue());
+                out.flip();
+                channel.write(out, 0);
+                channel.force(true);
+            }
+            Files.move(temporary, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temporary = null;
+            forceDirectory(absolute.getParent());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException e) {
+                    // the write already failed; a stray temporary file is the lesser problem
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes renames and new files in the directory durable; forcing the file alone
+     * does not persist its directory entry.
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    static TaskSnapshot open(Path file) {
+        return open(file, true);
+    }
+
+    static TaskSnapshot open(Path file, boolean verifyChecksum) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES || fileSize > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Not a task snapshot, unexpected size " + fileSize + ": " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IllegalStateException("Not a task snapshot: " + file);
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new IllegalStateException("Unsupported task snapshot version " + version + ": " + file);
+            }
+            // the checksum does not cover the header, so bound the counts before any arithmetic
+            long count = buffer.getLong(8);
+            long stringBytes = buffer.getLong(16);
+            long bodyBytes = fileSize - HEADER_BYTES;
+            if (count < 0 || count > bodyBytes / RECORD_BYTES || stringBytes < 0
+                    || count * RECORD_BYTES + stringBytes != bodyBytes) {
+                throw new IllegalStateException("Truncated or corrupt task snapshot: " + file);
+            }
+            if (verifyChecksum) {
+                CRC32C checksum = new CRC32C();
+                checksum.update(buffer.slice(HEADER_BYTES, (int) fileSize - HEADER_BYTES));
+                if (checksum.getValue() != buffer.getLong(24)) {
+                    throw new IllegalStateException("Checksum mismatch in task snapshot: " + file);
+                }
+            }
+            return new TaskSnapshot(buffer, (int) count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * A flyweight positioned on the given task.
+     */
+    TaskView view(int index) {
+        return new TaskView().moveTo(index);
+    }
+
+    Task get(int index) {
+        return view(index).toTask();
+    }
+
+    /**
+     * Visits every task with one reused flyweight; do not keep it past the callback.
+     */
+    void forEach(Consumer<TaskView> action) {
+        TaskView view = new TaskView();
+        for (int i = 0; i < size; i++) {
+            action.accept(view.moveTo(i));
+        }
+    }
+
+    /**
+     * Read-only list that decodes a Task on every get.
+     */
+    List<Task> asList() {
+        return new AbstractList<>() {
+            @Override
+            public Task get(int index) {
+                return TaskSnapshot.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Cursor over one record of the mapped file.
+     */
+    final class TaskView {
+        private int record;
+
+        TaskView moveTo(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Task " + index + " out of bounds for size " + size);
+            }
+            record = HEADER_BYTES + index * RECORD_BYTES;
+            return this;
+        }
+
+        int id() {
+            return buffer.getInt(record);
+        }
+
+        int priority() {
+            return buffer.getInt(record + 4);
+        }
+
+        String description() {
+            byte[] bytes = new byte[buffer.getInt(record + 12)];
+            buffer.get(stringsStart + buffer.getInt(record + 8), bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        Task toTask() {
+            return new Task(id(), description(), priority());
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer out, CRC32C checksum) throws IOException {
+        out.flip();
+        checksum.update(out.duplicate());
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("tasks", ".snapshot");
+        try {
+            List<Task> tasks = new ArrayList<>();
+            for (int i = 0; i < 1_000_000; i++) {
+                tasks.add(new Task(i, "Task number " + i, i % 5));
+            }
+
+            long start = System.nanoTime();
+            write(file, tasks);
+            System.out.printf("Wrote %,d tasks (%,d bytes) in %,d ms%n",
+                    tasks.size(), Files.size(file), (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            TaskSnapshot unverified = open(file, false);
+            System.out.printf("Mapped without checksum in %,d us%n", (System.nanoTime() - start) / 1_000);
+
+            start = System.nanoTime();
+            TaskSnapshot snapshot = open(file);
+            System.out.printf("Mapped and verified in %,d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+            long[] highPriority = new long[1];
+            snapshot.forEach(task -> {
+                if (task.priority() == 0) {
+                    highPriority[0]++;
+                }
+            });
+
+            assertWithPredicate("TaskSnapshot-size", unverified.size(), size -> size == tasks.size());
+            assertWithPredicate("TaskSnapshot-roundTrip", snapshot.asList(), tasks::equals);
+            assertWithPredicate("TaskSnapshot-flyweightScan", highPriority[0], count -> count == tasks.size() / 5);
+
+            // a write that fails once the temporary file is written must leave the previous
+            // snapshot readable and no temporary file behind; this source breaks on its
+            // second pass, as a collection modified during the write would
+            List<Task> replacement = List.of(new Task(1, "fine", 1), new Task(2, "also fine", 1));
+            Collection<Task> changesDuringWrite = new AbstractCollection<>() {
+                private int passes;
+
+                @Override
+                public Iterator<Task> iterator() {
+                    if (++passes > 1) {
+                        throw new ConcurrentModificationException("Tasks changed during the write");
+                    }
+                    return replacement.iterator();
+                }
+
+                @Override
+                public int size() {
+                    return replacement.size();
+                }
+            };
+            boolean written;
+            try {
+                write(file, changesDuringWrite);
+                written = true;
+            } catch (ConcurrentModificationException e) {
+                written = false;
+            }
+            assertWithPredicate("TaskSnapshot-failedWriteKeepsPrevious", written ? List.of() : open(file).asList(),
+                    tasks::equals);
+            String temporaryPrefix = file.getFileName() + ".";
+            try (Stream<Path> siblings = Files.list(file.toAbsolutePath().getParent())) {
+                assertWithPredicate("TaskSnapshot-failedWriteCleansUp",
+                        siblings.map(sibling -> sibling.getFileName().toString())
+                                .filter(name -> name.startsWith(temporaryPrefix) && name.endsWith(".tmp")).count(),
+                        count -> count == 0);
+            }
+
+            // header fields are not checksummed: a negative count balanced by the string
+            // length still adds up to the file size and must be rejected
+            Path corrupt = Files.createTempFile("tasks", ".snapshot");
+            try {
+                Files.copy(file, corrupt, StandardCopyOption.REPLACE_EXISTING);
+                try (FileChannel channel = FileChannel.open(corrupt, StandardOpenOption.WRITE)) {
+                    ByteBuffer counts = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+                    counts.putLong(-1).putLong(Files.size(corrupt) - HEADER_BYTES + RECORD_BYTES).flip();
+                    channel.write(counts, 8);
+                }
+                boolean rejected;
+                try {
+                    open(corrupt, false);
+                    rejected = false;
+                } catch (IllegalStateException e) {
+                    rejected = true;
+                }
+                assertWithPredicate("TaskSnapshot-corruptHeader", rejected, r -> r);
+            } finally {
+                Files.deleteIfExists(corrupt);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,425 @@
+package lesson.collection;
+
+import static exercise.utils.SolutionValidation.assertWithPredicate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+import lesson.collection.SeqCollectionExampleSolution.Task;
+import lesson.collection.SeqCollectionExampleSolution.TaskManager;
+
+/**
+ * Durable, append-only log of added tasks, with group commit.
+ *
+ * fsync per append would cap throughput at the disk's flush rate. Instead appenders
+ * copy their record into a shared buffer and wait; a single flusher thread writes the
+ * buffer and calls force() at most once per fsync interval, then wakes every appender
+ * whose record is now durable. Under load many appends share one fsync, and
+ * append() still only returns once its task is on disk.
+ *
+ * Files in the log directory:
+ *   tasks.snapshot  compacted state, in the TaskSnapshot format
+ *   tasks.wal       records added since: length, CRC32C, id, priority, description
+ *
+ * Recovery replays the snapshot and then the log, stopping at the first torn or
+ * corrupt record (a crash in the middle of a write) and cutting the log there.
+ * compact() folds the log into a new snapshot and empties it.
+ *
+ * Appenders also wait while MAX_PENDING_BYTES are queued behind a slow disk, so a
+ * stalled fsync pushes back on them instead of growing the buffer without limit. If
+ * the write, fsync or the committed consumer fails, the log stops taking appends and
+ * every waiting appender gets the failure.
+ *
+ * Waiting uses ReentrantLock conditions rather than monitors, so virtual threads
+ * blocked in append() do not pin their carrier thread.
+ */
+final class TaskWriteAheadLog implements AutoCloseable {
+
+    static final String SNAPSHOT_FILE = "tasks.snapshot";
+    static final String LOG_FILE = "tasks.wal";
+
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int PAYLOAD_FIXED_BYTES = 12;
+    private static final int INITIAL_BUFFER_BYTES = 1 << 16;
+    // stop lingering once a batch is this large
+    private static final int COMMIT_BYTES = 1 << 20;
+    // appenders wait while this much is queued for the next commit
+    private static final int MAX_PENDING_BYTES = 4 * COMMIT_BYTES;
+
+    private final Path directory;
+    private final FileChannel channel;
+    private final Consumer<Task> committed;
+    private final long fsyncIntervalNanos;
+    private final Thread flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition pendingWork = lock.newCondition();
+    private final Condition durable = lock.newCondition();
+    private ByteBuffer pending = newBuffer(INITIAL_BUFFER_BYTES);
+    private ByteBuffer spare = newBuffer(INITIAL_BUFFER_BYTES);
+    private List<Task> pendingTasks = new ArrayList<>();
+    private List<Task> spareTasks = new ArrayList<>();
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean flushing;
+    private Throwable failure;
+    private boolean closed;
+
+    private TaskWriteAheadLog(Path directory, Duration fsyncInterval, Consumer<Task> committed) throws IOException {
+        this.directory = directory;
+        this.committed = committed;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.channel = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.flusher = Thread.ofPlatform().daemon().name("task-wal-flusher").unstarted(this::flushLoop);
+    }
+
+    /**
+     * Opens (or creates) the log in the directory. The consumer first receives every
+     * recovered task, then every appended task once it is durable, always in log
+     * order, so what it builds after a restart matches what it had before.
+     */
+    static TaskWriteAheadLog open(Path directory, Duration fsyncInterval, Consumer<Task> committed) {
+        try {
+            Files.createDirectories(directory);
+            TaskWriteAheadLog log = new TaskWriteAheadLog(directory, fsyncInterval, committed);
+            // the log file may be new: its directory entry must be durable before the
+            // first append is acknowledged, or a crash could lose the whole file
+            TaskSnapshot.forceDirectory(directory);
+            log.replay();
+            log.flusher.start();
+            return log;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends the task and blocks until it is durable and has been passed to the
+     * committed consumer.
+     */
+    void append(Task task) {
+        ByteBuffer record = encode(task);
+        lock.lock();
+        try {
+            checkUsable();
+            // a record larger than the limit still goes through, alone in its batch
+            while (pending.position() > 0 && pending.position() + record.remaining() > MAX_PENDING_BYTES) {
+                pendingWork.signal();
+                durable.awaitUninterruptibly();
+                checkUsable();
+            }
+            if (pending.remaining() < record.remaining()) {
+                pending = grow(pending, record.remaining());
+            }
+            pending.put(record);
+            pendingTasks.add(task);
+            long sequence = ++appendedSequence;
+            pendingWork.signal();
+            while (durableSequence < sequence) {
+                checkUsable();
+                durable.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rewrites the snapshot with everything in the log and empties the log.
+     * Appends wait while this runs.
+     */
+    void compact() {
+        lock.lock();
+        try {
+            checkUsable();
+            // the file now holds exactly the durable records; anything still pending
+            // is written after the truncation below, so it is not lost
+            while (flushing) {
+                durable.awaitUninterruptibly();
+            }
+            List<Task> tasks = new ArrayList<>();
+            replayFiles(tasks::add);
+            // replaces the snapshot atomically and forces the directory, so the rename is
+            // durable before the truncation below: a crash leaves either the old snapshot
+            // and the full log, or the new snapshot
+            TaskSnapshot.write(directory.resolve(SNAPSHOT_FILE), tasks);
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long logBytes() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            // let the flusher drain what is pending, then stop it
+            while (durableSequence < appendedSequence && failure == null) {
+                pendingWork.signal();
+                durable.awaitUninterruptibly();
+            }
+            closed = true;
+            pendingWork.signal();
+            durable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void flushLoop() {
+        lock.lock();
+        try {
+            while (!closed) {
+                if (durableSequence == appendedSequence) {
+                    pendingWork.awaitUninterruptibly();
+                    continue;
+                }
+                if (fsyncIntervalNanos > 0) {
+                    // linger so that more appenders can join this commit
+                    long remaining = fsyncIntervalNanos;
+                    while (remaining > 0 && !closed && pending.position() < COMMIT_BYTES) {
+                        try {
+                            remaining = pendingWork.awaitNanos(remaining);
+                        } catch (InterruptedException e) {
+                            break;
+                        }
+                    }
+                }
+                try {
+                    flushPending();
+                } catch (Throwable e) {
+                    // whatever failed, appenders waiting on durable must not wait forever
+                    failure = e;
+                    durable.signalAll();
+                    return;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Only called by the flusher, with the lock held. The file write and fsync happen
+    // without it, so appenders keep filling the other buffer in the meantime.
+    private void flushPending() throws IOException {
+        ByteBuffer batch = pending;
+        List<Task> batchTasks = pendingTasks;
+        long batchSequence = appendedSequence;
+        pending = spare;
+        pendingTasks = spareTasks;
+        spare = null;
+        spareTasks = null;
+        flushing = true;
+        lock.unlock();
+        try {
+            batch.flip();
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            channel.force(false);
+            batchTasks.forEach(committed);
+        } finally {
+            lock.lock();
+            batch.clear();
+            batchTasks.clear();
+            spare = batch;
+            spareTasks = batchTasks;
+            flushing = false;
+        }
+        durableSequence = batchSequence;
+        durable.signalAll();
+    }
+
+    private void replay() throws IOException {
+        long validBytes = replayFiles(committed);
+        if (validBytes < channel.size()) {
+            // torn tail from a crash mid-write: drop it so new records follow valid ones
+            channel.truncate(validBytes);
+            channel.force(true);
+        }
+        channel.position(validBytes);
+    }
+
+    // Returns the number of valid bytes at the start of the log.
+    private long replayFiles(Consumer<Task> recovered) throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            TaskSnapshot.open(snapshot).forEach(view -> recovered.accept(view.toTask()));
+        }
+        long size = channel.size();
+        if (size == 0) {
+            return 0;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Task log over 2GB, compact more often: " + directory.resolve(LOG_FILE));
+        }
+        // read rather than map: the file is truncated right after, which a live mapping would not allow everywhere
+        ByteBuffer log = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+        while (log.hasRemaining()) {
+            if (channel.read(log, log.position()) < 0) {
+                break;
+            }
+        }
+        int position = 0;
+        CRC32C crc = new CRC32C();
+        while (position + RECORD_HEADER_BYTES <= size) {
+            int payloadBytes = log.getInt(position);
+            if (payloadBytes < PAYLOAD_FIXED_BYTES || position + RECORD_HEADER_BYTES + payloadBytes > size) {
+                break;
+            }
+            int payload = position + RECORD_HEADER_BYTES;
+            crc.reset();
+            crc.update(log.slice(payload, payloadBytes));
+            if ((int) crc.getValue() != log.getInt(position + 4)) {
+                break;
+            }
+            byte[] description = new byte[log.getInt(payload + 8)];
+            log.get(payload + PAYLOAD_FIXED_BYTES, description);
+            recovered.accept(new Task(log.getInt(payload), new String(description, StandardCharsets.UTF_8),
+                    log.getInt(payload + 4)));
+            position = payload + payloadBytes;
+        }
+        return position;
+    }
+
+    private void checkUsable() {
+        if (failure instanceof IOException e) {
+            throw new UncheckedIOException("Task log is no longer writable", e);
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Task log is no longer writable", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Task log is closed");
+        }
+    }
+
+    // length, CRC32C, then the payload the checksum covers
+    private static ByteBuffer encode(Task task) {
+        byte[] description = task.description().getBytes(StandardCharsets.UTF_8);
+        int payloadBytes = PAYLOAD_FIXED_BYTES + description.length;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payloadBytes).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(payloadBytes).putInt(0)
+                .putInt(task.id()).putInt(task.priority()).putInt(description.length).put(description);
+        CRC32C crc = new CRC32C();
+        crc.update(record.array(), RECORD_HEADER_BYTES, payloadBytes);
+        return record.putInt(4, (int) crc.getValue()).flip();
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int needed) {
+        ByteBuffer larger = newBuffer(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+        buffer.flip();
+        larger.put(buffer);
+        return larger;
+    }
+
+    private static ByteBuffer newBuffer(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    public static void main(String[] args) throws Exception {
+        SeqCollectionExampleSolution solution = new SeqCollectionExampleSolution();
+        Path directory = Files.createTempDirectory("task-wal");
+        try {
+            int tasks = 20_000;
+            String before;
+            long start = System.nanoTime();
+            try (TaskManager manager = solution.new TaskManager(directory, Duration.ofMillis(2))) {
+                try (ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor()) {
+                    for (int i = 0; i < tasks; i++) {
+                        Task task = new Task(i, "Task " + i, i % 5);
+                        writers.submit(() -> manager.addTask(task));
+                    }
+                }
+                before = manager.getAllTasksReversed().toString();
+            }
+            long elapsed = System.nanoTime() - start;
+            System.out.printf("%,d durable adds from virtual threads in %,d ms (%,.0f adds/s)%n",
+                    tasks, elapsed / 1_000_000, tasks / (elapsed / 1e9));
+
+            long logBytes = Files.size(directory.resolve(LOG_FILE));
+            String recovered;
+            try (TaskManager manager = solution.new TaskManager(directory, Duration.ZERO)) {
+                recovered = manager.getAllTasksReversed().toString();
+                manager.compactLog();
+            }
+            String compacted;
+            try (TaskManager manager = solution.new TaskManager(directory, Duration.ZERO)) {
+                compacted = manager.getAllTasksReversed().toString();
+            }
+
+            // a crash halfway through a record leaves a torn tail that recovery must skip
+            try (FileChannel channel = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.WRITE)) {
+                channel.write(encode(new Task(tasks, "Torn", 0)).limit(10), channel.size());
+            }
+            String afterTornWrite;
+            try (TaskManager manager = solution.new TaskManager(directory, Duration.ZERO)) {
+                afterTornWrite = manager.getAllTasksReversed().toString();
+            }
+
+            // a throwing consumer stops the log: appends fail instead of waiting forever
+            String appendFailure;
+            try (TaskWriteAheadLog log = open(directory.resolve("failing"), Duration.ZERO, task -> {
+                throw new IllegalArgumentException("rejected " + task.id());
+            })) {
+                log.append(new Task(1, "Rejected", 0));
+                appendFailure = "none";
+            } catch (IllegalStateException e) {
+                appendFailure = e.getCause().getMessage();
+            }
+
+            assertWithPredicate("TaskWriteAheadLog-replay", recovered, before::equals);
+            assertWithPredicate("TaskWriteAheadLog-logBytes", logBytes, bytes -> bytes > 0);
+            assertWithPredicate("TaskWriteAheadLog-compacted", compacted, before::equals);
+            assertWithPredicate("TaskWriteAheadLog-compactedLogEmpty",
+                    Files.size(directory.resolve(LOG_FILE)), bytes -> bytes == 0);
+            assertWithPredicate("TaskWriteAheadLog-tornTail", afterTornWrite, before::equals);
+            assertWithPredicate("TaskWriteAheadLog-consumerFailure", appendFailure, "rejected 1"::equals);
+        } finally {
+            try (var files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+            }
+        }
+    }
+}
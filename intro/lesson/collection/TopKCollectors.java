@@ -0,0 +1,248 @@
+package lesson.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collector;
+
+/**
+ * Collectors that keep only the best k elements, overall or per group.
+ *
+ * groupingBy followed by a sort holds every element and sorts every group, O(n log n)
+ * time and O(n) memory, to keep k of each. These collectors make one pass with a
+ * bounded max-heap per group whose root is the worst element kept; a new element
+ * either loses against the root in one comparison or replaces it in O(log k). Memory
+ * is O(groups x k).
+ *
+ * Ties under the comparator are broken by encounter order, and the combiner renumbers
+ * the right-hand side after the left, so a parallel stream returns exactly what a
+ * sequential one does. With a comparator that finds everything equal this is "the
+ * first k per group". Groups come out in first-seen order, each list best first.
+ */
+final class TopKCollectors {
+
+    private TopKCollectors() {
+    }
+
+    /**
+     * The k smallest elements under the comparator, best first.
+     */
+    static <T> Collector<T, ?, List<T>> topK(int k, Comparator<? super T> order) {
+        checkK(k);
+        return Collector.of(
+                () -> new BoundedHeap<T>(k, order),
+                BoundedHeap::offer,
+                BoundedHeap::mergeFollowing,
+                BoundedHeap::toSortedList);
+    }
+
+    /**
+     * The k smallest elements of every group under the comparator.
+     */
+    static <T, K> Collector<T, ?, Map<K, List<T>>> topKPerGroup(Function<? super T, ? extends K> classifier,
+                                                              int k, Comparator<? super T> order) {
+        return topKPerKeys((item, keys) -> keys.accept(classifier.apply(item)), k, order);
+    }
+
+    /**
+     * Like topKPerGroup, for elements that belong to several groups at once (a hero
+     * in every one of their departments). keysOf hands each group key of an element
+     * to the consumer.
+     */
+    static <T, K> Collector<T, ?, Map<K, List<T>>> topKPerKeys(BiConsumer<? super T, Consumer<K>> keysOf,
+                                                             int k, Comparator<? super T> order) {
+        checkK(k);
+        return Collector.of(
+                () -> new Groups<T, K>(k, order, keysOf),
+                Groups::accept,
+                Groups::mergeFollowing,
+                Groups::finish);
+    }
+
+    /**
+     * The first k elements of every group, in encounter order.
+     */
+    static <T, K> Collector<T, ?, Map<K, List<T>>> firstKPerGroup(Function<? super T, ? extends K> classifier, int k) {
+        return topKPerGroup(classifier, k, TopKCollectors::encounterOrder);
+    }
+
+    /**
+     * Like firstKPerGroup, for elements that belong to several groups at once.
+     */
+    static <T, K> Collector<T, ?, Map<K, List<T>>> firstKPerKeys(BiConsumer<? super T, Consumer<K>> keysOf, int k) {
+        return topKPerKeys(keysOf, k, TopKCollectors::encounterOrder);
+    }
+
+    // finds everything equal, so the encounter-order tie break decides
+    private static <T> int encounterOrder(T a, T b) {
+        return 0;
+    }
+
+    private static void checkK(int k) {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive, got " + k);
+        }
+    }
+
+    private static final class Groups<T, K> {
+        private final int k;
+        private final Comparator<? super T> order;
+        private final BiConsumer<? super T, Consumer<K>> keysOf;
+        private final Map<K, BoundedHeap<T>> heaps = new LinkedHashMap<>();
+        // elements seen by this container; the shared clock of all its heaps
+        private long seen;
+        private T current;
+        private final Consumer<K> offerCurrent = this::offerCurrent;
+
+        Groups(int k, Comparator<? super T> order, BiConsumer<? super T, Consumer<K>> keysOf) {
+            this.k = k;
+            this.order = order;
+            this.keysOf = keysOf;
+        }
+
+        void accept(T item) {
+            current = item;
+            keysOf.accept(item, offerCurrent);
+            current = null;
+            seen++;
+        }
+
+        private void offerCurrent(K key) {
+            heaps.computeIfAbsent(key, unused -> new BoundedHeap<>(k, order)).offer(current, seen);
+        }
+
+        Groups<T, K> mergeFollowing(Groups<T, K> right) {
+            right.heaps.forEach((key, heap) ->
+                    heaps.computeIfAbsent(key, unused -> new BoundedHeap<>(k, order)).offerAll(heap, seen));
+            seen += right.seen;
+            return this;
+        }
+
+        Map<K, List<T>> finish() {
+            Map<K, List<T>> result = new LinkedHashMap<>();
+            heaps.forEach((key, heap) -> result.put(key, heap.toSortedList()));
+            return result;
+        }
+    }
+
+    /**
+     * Max-heap of at most k elements under (comparator, sequence); the root is the
+     * element to drop next.
+     */
+    private static final class BoundedHeap<T> {
+        private final int k;
+        private final Comparator<? super T> order;
+        private Object[] elements;
+        private long[] sequences;
+        private int size;
+        private long seen;
+
+        BoundedHeap(int k, Comparator<? super T> order) {
+            this.k = k;
+            this.order = order;
+            int initial = Math.min(k, 16);
+            this.elements = new Object[initial];
+            this.sequences = new long[initial];
+        }
+
+        void offer(T element) {
+            offer(element, seen++);
+        }
+
+        void offer(T element, long sequence) {
+            if (size < k) {
+                if (size == elements.length) {
+                    int capacity = (int) Math.min(k, elements.length * 2L);
+                    elements = Arrays.copyOf(elements, capacity);
+                    sequences = Arrays.copyOf(sequences, capacity);
+                }
+                elements[size] = element;
+                sequences[size] = sequence;
+                siftUp(size++);
+            } else if (compare(element, sequence, 0) < 0) {
+                elements[0] = element;
+                sequences[0] = sequence;
+                siftDown(0);
+            }
+        }
+
+        // the right heap's elements all come after everything this side has seen
+        void offerAll(BoundedHeap<T> right, long offset) {
+            for (int i = 0; i < right.size; i++) {
+                offer(right.elementAt(i), right.sequences[i] + offset);
+            }
+        }
+
+        BoundedHeap<T> mergeFollowing(BoundedHeap<T> right) {
+            offerAll(right, seen);
+            seen += right.seen;
+            return this;
+        }
+
+        List<T> toSortedList() {
+            Integer[] slots = new Integer[size];
+            Arrays.setAll(slots, i -> i);
+            Arrays.sort(slots, (a, b) -> compare(elementAt(a), sequences[a], b));
+            List<T> sorted = new ArrayList<>(size);
+            for (Integer slot : slots) {
+                sorted.add(elementAt(slot));
+            }
+            return sorted;
+        }
+
+        private int compare(T element, long sequence, int slot) {
+            int c = order.compare(element, elementAt(slot));
+            return c != 0 ? c : Long.compare(sequence, sequences[slot]);
+        }
+
+        private void siftUp(int slot) {
+            while (slot > 0) {
+                int parent = (slot - 1) >>> 1;
+                if (compare(elementAt(slot), sequences[slot], parent) <= 0) {
+                    return;
+                }
+                swap(slot, parent);
+                slot = parent;
+            }
+        }
+
+        private void siftDown(int slot) {
+            while (true) {
+                int worst = slot;
+                int left = 2 * slot + 1;
+                int right = left + 1;
+                if (left < size && compare(elementAt(left), sequences[left], worst) > 0) {
+                    worst = left;
+                }
+                if (right < size && compare(elementAt(right), sequences[right], worst) > 0) {
+                    worst = right;
+                }
+                if (worst == slot) {
+                    return;
+                }
+                swap(slot, worst);
+                slot = worst;
+            }
+        }
+
+        private void swap(int a, int b) {
+            Object element = elements[a];
+            elements[a] = elements[b];
+            elements[b] = element;
+            long sequence = sequences[a];
+            sequences[a] = sequences[b];
+            sequences[b] = sequence;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T elementAt(int slot) {
+            return (T) elements[slot];
+        }
+    }
+}
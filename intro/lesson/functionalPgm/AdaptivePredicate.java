@@ -0,0 +1,331 @@
+package lesson.functionalPgm;
+
+import static exercise.utils.SolutionValidation.assertWithPredicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * An and-chain of checks that measures them and runs the cheapest, most selective
+ * first.
+ *
+ * a.and(b).and(c) always evaluates in the written order, so an expensive check that
+ * rarely fails, written first, is paid on every input. Here about one call in
+ * sampleEvery is a sample: every check runs on it, timed, and its pass rate and cost
+ * are recorded. After reorderAfter samples the checks are sorted by cost per
+ * rejection (cost / (1 - pass rate)), which minimizes the expected cost for
+ * independent checks, and the counters are halved so the order follows drift.
+ *
+ * Reordering never changes a true or false result, provided checks have no side
+ * effects. Exceptions need more care:
+ * - Guards (e.g. a null check the others rely on) keep their place in front; declare
+ *   as a guard anything another check depends on.
+ * - If a check throws while running out of written order, the input is evaluated
+ *   again in written order, which gives what the plain and-chain would have given.
+ * - A check that now runs earlier can reject the input before a throwing check is
+ *   reached. Then the result is false where the written chain would have thrown.
+ *
+ * Samples are recorded under a lock taken with tryLock, so a busy lock just means an
+ * unsampled call. Other calls only read the current order.
+ */
+final class AdaptivePredicate<T> implements Predicate<T> {
+
+    static final int DEFAULT_SAMPLE_EVERY = 64;
+    static final int DEFAULT_REORDER_AFTER = 256;
+
+    private static final long TIMER_OVERHEAD = timerOverhead();
+
+    /**
+     * What one check looked like over the recent samples; position is its place in
+     * the current order.
+     */
+    record CheckStats(String name, int position, long samples, double passRate, double nanosPerCall) {
+    }
+
+    private final Predicate<? super T>[] guards;
+    private final Predicate<? super T>[] checks;
+    private final String[] names;
+    private final int sampleEvery;
+    private final int reorderAfter;
+
+    private volatile int[] order;
+
+    private final ReentrantLock statsLock = new ReentrantLock();
+    private final long[] samples;
+    private final long[] passes;
+    private final long[] nanos;
+    private int samplesSinceReorder;
+    private long reorders;
+
+    private AdaptivePredicate(Builder<T> builder) {
+        this.guards = builder.guards.toArray(newArray(0));
+        this.checks = builder.checks.toArray(newArray(0));
+        this.names = builder.names.toArray(new String[0]);
+        this.sampleEvery = builder.sampleEvery;
+        this.reorderAfter = builder.reorderAfter;
+        this.order = IntStream.range(0, checks.length).toArray();
+        this.samples = new long[checks.length];
+        this.passes = new long[checks.length];
+        this.nanos = new long[checks.length];
+    }
+
+    static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    static final class Builder<T> {
+        private final List<Predicate<? super T>> guards = new ArrayList<>();
+        private final List<Predicate<? super T>> checks = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private int sampleEvery = DEFAULT_SAMPLE_EVERY;
+        private int reorderAfter = DEFAULT_REORDER_AFTER;
+
+        private Builder() {
+        }
+
+        /** Runs before every check, in the order added, and is never moved. */
+        Builder<T> guard(Predicate<? super T> guard) {
+            guards.add(Objects.requireNonNull(guard));
+            return this;
+        }
+
+        Builder<T> check(String name, Predicate<? super T> check) {
+            names.add(Objects.requireNonNull(name));
+            checks.add(Objects.requireNonNull(check));
+            return this;
+        }
+
+        /** Roughly one call in this many is sampled. */
+        Builder<T> sampleEvery(int calls) {
+            if (calls <= 0) {
+                throw new IllegalArgumentException("Sample interval must be positive, got " + calls);
+            }
+            this.sampleEvery = calls;
+            return this;
+        }
+
+        /** Number of samples between two reorders. */
+        Builder<T> reorderAfter(int samples) {
+            if (samples <= 0) {
+                throw new IllegalArgumentException("Samples per reorder must be positive, got " + samples);
+            }
+            this.reorderAfter = samples;
+            return this;
+        }
+
+        AdaptivePredicate<T> build() {
+            return new AdaptivePredicate<>(this);
+        }
+    }
+
+    @Override
+    public boolean test(T value) {
+        for (Predicate<? super T> guard : guards) {
+            if (!guard.test(value)) {
+                return false;
+            }
+        }
+        if (ThreadLocalRandom.current().nextInt(sampleEvery) == 0 && statsLock.tryLock()) {
+            try {
+                return sample(value);
+            } finally {
+                statsLock.unlock();
+            }
+        }
+        int[] order = this.order;
+        try {
+            for (int index : order) {
+                if (!checks[index].test(value)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (RuntimeException e) {
+            if (isWrittenOrder(order)) {
+                throw e;
+            }
+            return testInWrittenOrder(value);
+        }
+    }
+
+    /**
+     * Names of the checks in the order they currently run.
+     */
+    List<String> order() {
+        return Arrays.stream(order).mapToObj(index -> names[index]).toList();
+    }
+
+    /**
+     * Per-check statistics in the current order.
+     */
+    List<CheckStats> statistics() {
+        statsLock.lock();
+        try {
+            int[] order = this.order;
+            List<CheckStats> stats = new ArrayList<>(order.length);
+            for (int position = 0; position < order.length; position++) {
+                int index = order[position];
+                long sampled = samples[index];
+                stats.add(new CheckStats(names[index], position, sampled,
+                        sampled == 0 ? Double.NaN : (double) passes[index] / sampled,
+                        sampled == 0 ? Double.NaN : (double) nanos[index] / sampled));
+            }
+            return stats;
+        } finally {
+            statsLock.unlock();
+        }
+    }
+
+    long reorders() {
+        statsLock.lock();
+        try {
+            return reorders;
+        } finally {
+            statsLock.unlock();
+        }
+    }
+
+    /**
+     * Runs every check so each gets an unconditional pass rate. A check throwing here
+     * counts as a rejection; the returned result then comes from the written order.
+     */
+    private boolean sample(T value) {
+        boolean result = true;
+        boolean threw = false;
+        for (int index : order) {
+            boolean passed;
+            long start = System.nanoTime();
+            try {
+                passed = checks[index].test(value);
+            } catch (RuntimeException e) {
+                passed = false;
+                threw = true;
+            }
+            nanos[index] += Math.max(0, System.nanoTime() - start - TIMER_OVERHEAD);
+            samples[index]++;
+            if (passed) {
+                passes[index]++;
+            }
+            result &= passed;
+        }
+        if (++samplesSinceReorder >= reorderAfter) {
+            reorder();
+        }
+        return threw ? testInWrittenOrder(value) : result;
+    }
+
+    private void reorder() {
+        double[] rank = new double[checks.length];
+        for (int i = 0; i < checks.length; i++) {
+            double cost = 1.0 + (double) nanos[i] / Math.max(1, samples[i]);
+            double rejectRate = samples[i] == 0 ? 0 : 1.0 - (double) passes[i] / samples[i];
+            rank[i] = cost / Math.max(rejectRate, 1e-6);
+            samples[i] >>= 1;
+            passes[i] >>= 1;
+            nanos[i] >>= 1;
+        }
+        int[] ranked = IntStream.range(0, checks.length).boxed()
+                .sorted(Comparator.comparingDouble(i -> rank[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+        if (!Arrays.equals(ranked, order)) {
+            order = ranked;
+            reorders++;
+        }
+        samplesSinceReorder = 0;
+    }
+
+    private boolean testInWrittenOrder(T value) {
+        for (Predicate<? super T> check : checks) {
+            if (!check.test(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWrittenOrder(int[] order) {
+        for (int i = 0; i < order.length; i++) {
+            if (order[i] != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> Predicate<? super T>[] newArray(int length) {
+        return new Predicate[length];
+    }
+
+    private static long timerOverhead() {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 1_000; i++) {
+            long start = System.nanoTime();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    public static void main(String[] args) {
+        Pattern email = Pattern.compile("^[\\w.+-]+@[\\w-]+(\\.[\\w-]+)+$");
+        Predicate<String> wellFormed = text -> email.matcher(text).matches();
+        Predicate<String> shortText = text -> text.length() <= 100;
+        Predicate<String> companyDomain = text -> text.endsWith("@example.com");
+
+        AdaptivePredicate<String> isValid = AdaptivePredicate.<String>builder()
+                .guard(Objects::nonNull)
+                .check("wellFormed", wellFormed)
+                .check("short", shortText)
+                .check("companyDomain", companyDomain)
+                .sampleEvery(8)
+                .reorderAfter(64)
+                .build();
+        Predicate<String> plain = ((Predicate<String>) Objects::nonNull).and(wellFormed).and(shortText).and(companyDomain);
+
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            inputs.add(switch (i % 10) {
+                case 0 -> "user" + i + "@example.com";
+                case 1 -> null;
+                case 2 -> "not an email " + i;
+                default -> "user" + i + "@mail" + (i % 7) + ".org";
+            });
+        }
+        boolean sameResults = true;
+        for (String input : inputs) {
+            sameResults &= isValid.test(input) == plain.test(input);
+        }
+        assertWithPredicate("AdaptivePredicate-sameResults", sameResults, same -> same);
+        assertWithPredicate("AdaptivePredicate-selectiveCheckFirst", isValid.order(),
+                order -> order.get(0).equals("companyDomain") && isValid.reorders() > 0);
+        List<CheckStats> stats = isValid.statistics();
+        assertWithPredicate("AdaptivePredicate-statistics", stats,
+                list -> list.size() == 3 && list.stream().allMatch(s -> s.samples() > 0)
+                        && list.get(0).passRate() < 0.2);
+        stats.forEach(System.out::println);
+
+        // notEmpty would throw on null; written after notNull as a check, not a guard
+        AdaptivePredicate<String> notBlank = AdaptivePredicate.<String>builder()
+                .check("notNull", Objects::nonNull)
+                .check("notEmpty", text -> !text.trim().isEmpty())
+                .sampleEvery(2)
+                .reorderAfter(8)
+                .build();
+        Predicate<String> plainNotBlank = ((Predicate<String>) Objects::nonNull).and(text -> !text.trim().isEmpty());
+        boolean nullSafe = true;
+        for (int i = 0; i < 2_000; i++) {
+            String input = i % 3 == 0 ? null : i % 3 == 1 ? "  " : "text";
+            nullSafe &= notBlank.test(input) == plainNotBlank.test(input);
+        }
+        assertWithPredicate("AdaptivePredicate-throwingCheckKeepsResult", nullSafe, same -> same);
+    }
+}
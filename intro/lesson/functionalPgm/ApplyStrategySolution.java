@@ -1,7 +1,12 @@
 package lesson.functionalPgm;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiFunction;
 
 import static exercise.utils.SolutionValidation.assertWithPredicate;
@@ -22,6 +27,13 @@ public class ApplyStrategySolution {
                 .reduce(iphonePrice, applyDiscount::apply);
     }
 
+    // combined factor per user, computed once and refreshed only when that user's discounts change
+    private final PricingEngine pricingEngine = new PricingEngine(usersWithDiscount);
+
+    private double getDiscountedPriceForUserCached(String userName) {
+        return pricingEngine.price(userName, iphonePrice);
+    }
+
     public static void main(String[] args) {
 
         ApplyStrategySolution applyStrategy = new ApplyStrategySolution();
@@ -33,6 +45,60 @@ public class ApplyStrategySolution {
                 discount -> discount.equals(1080.00));
         assertWithPredicate("getDiscountedPriceForUser-Peter", applyStrategy.getDiscountedPriceForUser("Peter"),
                 discount -> discount.equals(1152.00));
+        assertWithPredicate("getDiscountedPriceForUserCached",
+                List.of("John", "Jack", "Sparrow", "Peter", "Nobody").stream()
+                        .map(applyStrategy::getDiscountedPriceForUserCached).toList(),
+                prices -> prices.equals(List.of(1004.40, 1083.00, 1080.00, 1152.00, 1200.00)));
+
+        // a sale event: a million users, repriced in parallel from cached factors
+        Random random = new Random(20);
+        Map<String, List<Double>> manyUsers = new HashMap<>();
+        for (int i = 0; i < 1_000_000; i++) {
+            List<Double> discounts = new ArrayList<>();
+            for (int d = random.nextInt(4); d > 0; d--) {
+                discounts.add((double) (1 + random.nextInt(20)));
+            }
+            manyUsers.put("user" + i, discounts);
+        }
+        PricingEngine engine = new PricingEngine(manyUsers);
+        long iphoneCents = Math.round(iphonePrice * 100);
+        long start = System.nanoTime();
+        long[] prices = engine.priceForAllUsers(iphoneCents);
+        System.out.printf("Priced %,d users in %,d ms%n", prices.length, (System.nanoTime() - start) / 1_000_000);
+        BiFunction<Double, Double, Double> applyDiscount = (price, discountPercent) -> price - (price * discountPercent / 100);
+        assertWithPredicate("priceForAllUsers-matchesReduce", prices, all -> {
+            for (int id = 0; id < all.length; id++) {
+                double reduced = manyUsers.get(engine.userName(id)).stream().reduce(iphonePrice, applyDiscount::apply);
+                if (Math.abs(all[id] - reduced * 100) > 0.5 + 1e-6) {
+                    return false;
+                }
+            }
+            return true;
+        });
+
+        int repriced = engine.userId("user42");
+        engine.updateDiscounts("user42", List.of(50.0));
+        long[] afterUpdate = engine.priceForAllUsers(iphoneCents);
+        assertWithPredicate("updateDiscounts-onlyThatUser", afterUpdate, all -> {
+            for (int id = 0; id < all.length; id++) {
+                if (id != repriced && all[id] != prices[id]) {
+                    return false;
+                }
+            }
+            return all[repriced] == iphoneCents / 2;
+        });
+
+        long[] catalog = {iphoneCents, 99_900, 1_999};
+        LongAdder rows = new LongAdder();
+        LongAdder mismatches = new LongAdder();
+        engine.priceCatalog(catalog, (product, firstUser, cents, count) -> {
+            rows.add(count);
+            if (product == 0 && !Arrays.equals(cents, 0, count, afterUpdate, firstUser, firstUser + count)) {
+                mismatches.increment();
+            }
+        });
+        assertWithPredicate("priceCatalog", rows.sum(),
+                total -> total == (long) catalog.length * engine.userCount() && mismatches.sum() == 0);
 
     }
 
@@ -0,0 +1,399 @@
+package lesson.functionalPgm;
+
+import static exercise.utils.SolutionValidation.assertWithPredicate;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * Consumer that buffers accepted items and hands them to a sink in batches, e.g. one
+ * multi-row INSERT instead of a round trip per row.
+ *
+ * accept() only queues the item; any number of threads may call it. A single flusher
+ * thread passes a batch to the sink once batchSize items are waiting, or once the
+ * oldest waiting item has lingered for the linger time, whichever comes first. Items
+ * left over behind a full batch go out right after it, without waiting another
+ * linger. So an item reaches the sink within the linger time plus the sink time of
+ * the batches ahead of it.
+ *
+ * At most capacity items wait at a time. When the sink falls behind, accept() blocks
+ * until the flusher has taken a batch, so producers slow down to the sink's pace
+ * instead of filling the heap.
+ *
+ * flush() waits until everything accepted so far has been through the sink. close()
+ * stops new items, drains all waiting ones and stops the flusher. If the sink
+ * throws, the consumer stops: items still waiting are dropped and every later call
+ * fails with the sink's exception as cause.
+ *
+ * Waiting uses ReentrantLock conditions rather than monitors, so virtual threads
+ * blocked in accept() do not pin their carrier thread.
+ */
+final class BatchingConsumer<T> implements Consumer<T>, AutoCloseable {
+
+    /**
+     * Counters since creation. Batches are counted by what triggered them (byFlush
+     * covers flush() and close()); maxWaiting is the most items ever waiting, never
+     * above capacity.
+     */
+    record Stats(long items, long batches, long bySize, long byLinger, long byFlush,
+                 long blockedAccepts, int maxWaiting) {
+
+        double meanBatchSize() {
+            return batches == 0 ? 0 : (double) items / batches;
+        }
+    }
+
+    private final Consumer<? super List<T>> sink;
+    private final int batchSize;
+    private final int capacity;
+    private final long lingerNanos;
+    private final Thread flusher;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition work = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final ArrayDeque<T> waiting = new ArrayDeque<>();
+    private long oldestNanos;
+    private long acceptedCount;
+    private long flushedCount;
+    private long flushRequestedUpTo;
+    private boolean closed;
+    private boolean stopped;
+    private Throwable failure;
+
+    private long batches;
+    private long bySize;
+    private long byLinger;
+    private long byFlush;
+    private long blockedAccepts;
+    private int maxWaiting;
+
+    private BatchingConsumer(Consumer<? super List<T>> sink, int batchSize, Duration linger, int capacity) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive, got " + batchSize);
+        }
+        if (capacity < batchSize) {
+            throw new IllegalArgumentException("Capacity " + capacity + " is smaller than batch size " + batchSize);
+        }
+        if (linger.isNegative()) {
+            throw new IllegalArgumentException("Linger must not be negative, got " + linger);
+        }
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.capacity = capacity;
+        this.lingerNanos = linger.toNanos();
+        this.flusher = Thread.ofPlatform().daemon().name("batching-consumer-flusher").unstarted(this::flushLoop);
+    }
+
+    /**
+     * Batches of up to batchSize, at most four batches waiting.
+     */
+    static <T> BatchingConsumer<T> of(Consumer<? super List<T>> sink, int batchSize, Duration linger) {
+        return of(sink, batchSize, linger, 4 * batchSize);
+    }
+
+    /**
+     * The sink receives a new list per batch, which it may keep.
+     */
+    static <T> BatchingConsumer<T> of(Consumer<? super List<T>> sink, int batchSize, Duration linger, int capacity) {
+        BatchingConsumer<T> consumer = new BatchingConsumer<>(sink, batchSize, linger, capacity);
+        consumer.flusher.start();
+        return consumer;
+    }
+
+    /**
+     * Queues the item, blocking while capacity items are already waiting.
+     */
+    @Override
+    public void accept(T item) {
+        lock.lock();
+        try {
+            checkUsable();
+            if (waiting.size() >= capacity) {
+                blockedAccepts++;
+                do {
+                    notFull.awaitUninterruptibly();
+                    checkUsable();
+                } while (waiting.size() >= capacity);
+            }
+            if (waiting.isEmpty()) {
+                oldestNanos = System.nanoTime();
+                work.signal();
+            }
+            waiting.add(item);
+            acceptedCount++;
+            maxWaiting = Math.max(maxWaiting, waiting.size());
+            if (waiting.size() == batchSize) {
+                work.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends what is waiting without lingering and blocks until every item accepted
+     * before this call has been through the sink.
+     */
+    void flush() {
+        lock.lock();
+        try {
+            checkUsable();
+            long target = acceptedCount;
+            flushRequestedUpTo = Math.max(flushRequestedUpTo, target);
+            work.signal();
+            while (flushedCount < target) {
+                checkFailure();
+                if (stopped) {
+                    // the flusher is gone, nothing will advance flushedCount any more
+                    throw new IllegalStateException("Batching consumer stopped before the flush completed");
+                }
+                flushed.awaitUninterruptibly();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(flushedCount, batches, bySize, byLinger, byFlush, blockedAccepts, maxWaiting);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting, drains every waiting item to the sink and stops the flusher.
+     * Producers still blocked in accept() fail, their items not taken. Throws if the
+     * sink failed, here or earlier.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (!closed) {
+                closed = true;
+                work.signal();
+                // producers blocked on a full buffer would otherwise wait forever
+                notFull.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.lock();
+        try {
+            checkFailure();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        lock.lock();
+        try {
+            while (true) {
+                if (waiting.isEmpty()) {
+                    if (closed) {
+                        break;
+                    }
+                    work.awaitUninterruptibly();
+                    continue;
+                }
+                long dueNanos = oldestNanos + lingerNanos;
+                long remaining = dueNanos - System.nanoTime();
+                while (remaining > 0 && waiting.size() < batchSize && !closed && flushRequestedUpTo <= flushedCount) {
+                    try {
+                        remaining = work.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                }
+                if (waiting.size() >= batchSize) {
+                    bySize++;
+                } else if (remaining <= 0) {
+                    byLinger++;
+                } else {
+                    byFlush++;
+                }
+                try {
+                    sendBatch();
+                } catch (Throwable e) {
+                    // an Error too: waiters only leave once failure or stopped is set
+                    failure = e;
+                    waiting.clear();
+                    break;
+                }
+            }
+        } finally {
+            stopped = true;
+            notFull.signalAll();
+            flushed.signalAll();
+            lock.unlock();
+        }
+    }
+
+    // Only called by the flusher, with the lock held; the sink runs without it so
+    // producers keep queueing meanwhile. Leftovers keep oldestNanos, so their deadline
+    // is never later than that of the batch they queued behind.
+    private void sendBatch() {
+        int size = Math.min(batchSize, waiting.size());
+        List<T> batch = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            batch.add(waiting.poll());
+        }
+        notFull.signalAll();
+        lock.unlock();
+        try {
+            sink.accept(Collections.unmodifiableList(batch));
+        } finally {
+            lock.lock();
+        }
+        batches++;
+        flushedCount += size;
+        flushed.signalAll();
+    }
+
+    private void checkUsable() {
+        checkFailure();
+        if (closed || stopped) {
+            throw new IllegalStateException("Batching consumer is closed");
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Batch sink failed, consumer stopped", failure);
+        }
+    }
+
+    /**
+     * Stands in for a database: records each batch's size and how long its oldest
+     * item waited (items are their accept timestamps), and takes a fixed time per
+     * round trip plus a little per row.
+     */
+    private static final class RecordingSink implements Consumer<List<Long>> {
+        private final long roundTripNanos;
+        private final List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+        private final List<Long> latencyNanos = Collections.synchronizedList(new ArrayList<>());
+
+        RecordingSink(Duration roundTrip) {
+            this.roundTripNanos = roundTrip.toNanos();
+        }
+
+        @Override
+        public void accept(List<Long> batch) {
+            long start = System.nanoTime();
+            latencyNanos.add(start - batch.get(0));
+            sizes.add(batch.size());
+            while (System.nanoTime() - start < roundTripNanos + 200L * batch.size()) {
+                Thread.onSpinWait();
+            }
+        }
+
+        int rows() {
+            return sizes.stream().mapToInt(Integer::intValue).sum();
+        }
+
+        long maxLatencyMillis() {
+            return latencyNanos.stream().mapToLong(Long::longValue).max().orElse(0) / 1_000_000;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // many producers, sink slower than them: full batches, bounded waiting
+        RecordingSink database = new RecordingSink(Duration.ofMillis(1));
+        BatchingConsumer<Long> inserts = BatchingConsumer.of(database, 100, Duration.ofMillis(50), 400);
+        List<Thread> producers = IntStream.range(0, 8)
+                .mapToObj(p -> Thread.ofVirtual().start(() -> {
+                    for (int i = 0; i < 5_000; i++) {
+                        inserts.accept(System.nanoTime());
+                    }
+                }))
+                .toList();
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        inserts.close();
+        Stats stats = inserts.stats();
+        System.out.println(stats + ", mean batch " + stats.meanBatchSize()
+                + ", max latency " + database.maxLatencyMillis() + " ms");
+        assertWithPredicate("BatchingConsumer-allRowsOnce", database.rows(),
+                rows -> rows == 40_000 && stats.items() == 40_000);
+        assertWithPredicate("BatchingConsumer-batchSizeLimit", database.sizes,
+                sizes -> sizes.stream().allMatch(size -> size <= 100) && stats.bySize() >= 390);
+        assertWithPredicate("BatchingConsumer-backpressure", stats,
+                s -> s.blockedAccepts() > 0 && s.maxWaiting() <= 400);
+
+        // a trickle: the linger time sends a partial batch
+        RecordingSink trickleSink = new RecordingSink(Duration.ZERO);
+        try (BatchingConsumer<Long> trickle = BatchingConsumer.of(trickleSink, 100, Duration.ofMillis(30))) {
+            for (int i = 0; i < 3; i++) {
+                trickle.accept(System.nanoTime());
+            }
+            Thread.sleep(200);
+            assertWithPredicate("BatchingConsumer-lingerFlush", trickleSink.sizes,
+                    sizes -> sizes.equals(List.of(3)) && trickle.stats().byLinger() == 1
+                            && trickleSink.maxLatencyMillis() >= 25);
+        }
+
+        // close drains what is waiting without sitting out a long linger
+        RecordingSink drainSink = new RecordingSink(Duration.ZERO);
+        BatchingConsumer<Long> draining = BatchingConsumer.of(drainSink, 100, Duration.ofSeconds(30), 1_000);
+        for (int i = 0; i < 250; i++) {
+            draining.accept(System.nanoTime());
+        }
+        long closeStart = System.nanoTime();
+        draining.close();
+        long closeMillis = (System.nanoTime() - closeStart) / 1_000_000;
+        assertWithPredicate("BatchingConsumer-closeDrains", drainSink.sizes,
+                sizes -> sizes.equals(List.of(100, 100, 50)) && closeMillis < 5_000);
+        boolean rejected;
+        try {
+            draining.accept(System.nanoTime());
+            rejected = false;
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+        assertWithPredicate("BatchingConsumer-acceptAfterClose", rejected, r -> r);
+
+        // flush makes everything accepted so far visible
+        RecordingSink flushSink = new RecordingSink(Duration.ZERO);
+        try (BatchingConsumer<Long> flushing = BatchingConsumer.of(flushSink, 100, Duration.ofSeconds(30))) {
+            for (int i = 0; i < 42; i++) {
+                flushing.accept(System.nanoTime());
+            }
+            flushing.flush();
+            assertWithPredicate("BatchingConsumer-flush", flushSink.rows(),
+                    rows -> rows == 42 && flushing.stats().byFlush() == 1);
+        }
+
+        // a sink throwing an Error stops the consumer; flush fails instead of waiting forever
+        BatchingConsumer<Long> failing = BatchingConsumer.of(batch -> {
+            throw new AssertionError("sink down");
+        }, 100, Duration.ofSeconds(30));
+        failing.accept(System.nanoTime());
+        Throwable flushFailure;
+        try {
+            failing.flush();
+            flushFailure = null;
+        } catch (IllegalStateException e) {
+            flushFailure = e.getCause();
+        }
+        assertWithPredicate("BatchingConsumer-sinkError", flushFailure, cause -> cause instanceof AssertionError);
+    }
+}
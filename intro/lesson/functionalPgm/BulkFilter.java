@@ -0,0 +1,392 @@
+package lesson.functionalPgm;
+
+import static exercise.utils.SolutionValidation.assertWithPredicate;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.function.IntPredicate;
+import java.util.function.LongPredicate;
+
+/**
+ * Filtering of int[] / long[] in bulk, compacting the matches into a preallocated array.
+ *
+ * A List<Integer> filtered with a Predicate costs a boxed Integer per element and a
+ * predicate call per element. Here the common conditions (ranges, parity, modulus)
+ * are data, not lambdas, so each gets its own tight loop over the primitive array:
+ * with the jdk.incubator.vector module present (run with
+ * --add-modules jdk.incubator.vector) one lane mask is computed per vector and the
+ * matching lanes are compressed into the output; without it a branch-free scalar loop
+ * does the same one element at a time. Both give identical results.
+ *
+ * Modulo follows Math.floorMod, so the remainder is never negative and -3 is odd.
+ * Instead of a division per element the test is a multiply and a compare: x is
+ * divisible by d = d0 * 2^k (d0 odd) exactly when rotateRight(x * inverse(d0), k) is
+ * at most (2^W - 1) / d, unsigned (Hacker's Delight 10-17).
+ *
+ * Every filter writes the matches at target[0..count) and returns count; target must
+ * have room for to - from values and may be the source array itself, which filters
+ * in place. Entries from count on may have been overwritten.
+ */
+final class BulkFilter {
+
+    /** Ranges shorter than this always take the scalar loop. */
+    static final int VECTOR_THRESHOLD = 64;
+
+    private static final boolean VECTORIZED = vectorModulePresent() && VectorFilters.profitable();
+
+    /**
+     * A condition the bulk filters know how to evaluate without calling a lambda.
+     */
+    sealed interface Condition permits Between, Modulo {
+        boolean test(long value);
+    }
+
+    /** min <= value <= max. */
+    record Between(long min, long max) implements Condition {
+        Between {
+            if (min > max) {
+                throw new IllegalArgumentException("Empty range " + min + ".." + max);
+            }
+        }
+
+        @Override
+        public boolean test(long value) {
+            return value >= min && value <= max;
+        }
+    }
+
+    /** Math.floorMod(value, divisor) == remainder. */
+    record Modulo(long divisor, long remainder) implements Condition {
+        Modulo {
+            if (divisor <= 0 || remainder < 0 || remainder >= divisor) {
+                throw new IllegalArgumentException(
+                        "Need divisor > 0 and 0 <= remainder < divisor, got " + divisor + " and " + remainder);
+            }
+        }
+
+        @Override
+        public boolean test(long value) {
+            return Math.floorMod(value, divisor) == remainder;
+        }
+    }
+
+    static Condition even() {
+        return new Modulo(2, 0);
+    }
+
+    static Condition odd() {
+        return new Modulo(2, 1);
+    }
+
+    static Condition between(long min, long max) {
+        return new Between(min, max);
+    }
+
+    static Condition multipleOf(long divisor) {
+        return new Modulo(divisor, 0);
+    }
+
+    static Condition modulo(long divisor, long remainder) {
+        return new Modulo(divisor, remainder);
+    }
+
+    /** Whether the filters run on the Vector API in this JVM. */
+    static boolean vectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * The matching values as a new, exactly sized array. Convenience for small inputs;
+     * hot loops should reuse a target array.
+     */
+    static int[] filter(int[] source, Condition condition) {
+        int[] target = new int[source.length];
+        return Arrays.copyOf(target, filter(source, 0, source.length, target, condition));
+    }
+
+    static long[] filter(long[] source, Condition condition) {
+        long[] target = new long[source.length];
+        return Arrays.copyOf(target, filter(source, 0, source.length, target, condition));
+    }
+
+    static int filter(int[] source, int[] target, Condition condition) {
+        return filter(source, 0, source.length, target, condition);
+    }
+
+    static int filter(long[] source, long[] target, Condition condition) {
+        return filter(source, 0, source.length, target, condition);
+    }
+
+    static int filter(int[] source, int from, int to, int[] target, Condition condition) {
+        checkRange(source.length, from, to, target.length);
+        return filter(source, from, to, target, condition, VECTORIZED && to - from >= VECTOR_THRESHOLD);
+    }
+
+    static int filter(long[] source, int from, int to, long[] target, Condition condition) {
+        checkRange(source.length, from, to, target.length);
+        return filter(source, from, to, target, condition, VECTORIZED && to - from >= VECTOR_THRESHOLD);
+    }
+
+    /** The scalar loops only, whatever the JVM supports; for comparisons. */
+    static int filterScalar(int[] source, int from, int to, int[] target, Condition condition) {
+        checkRange(source.length, from, to, target.length);
+        return filter(source, from, to, target, condition, false);
+    }
+
+    static int filterScalar(long[] source, int from, int to, long[] target, Condition condition) {
+        checkRange(source.length, from, to, target.length);
+        return filter(source, from, to, target, condition, false);
+    }
+
+    /**
+     * Any other condition: one predicate call per element, still without boxing.
+     */
+    static int filter(int[] source, int from, int to, int[] target, IntPredicate predicate) {
+        checkRange(source.length, from, to, target.length);
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int value = source[i];
+            if (predicate.test(value)) {
+                target[count++] = value;
+            }
+        }
+        return count;
+    }
+
+    static int filter(long[] source, int from, int to, long[] target, LongPredicate predicate) {
+        checkRange(source.length, from, to, target.length);
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            long value = source[i];
+            if (predicate.test(value)) {
+                target[count++] = value;
+            }
+        }
+        return count;
+    }
+
+    private static int filter(int[] source, int from, int to, int[] target, Condition condition, boolean vector) {
+        switch (Objects.requireNonNull(condition)) {
+            case Between range -> {
+                if (range.min() > Integer.MAX_VALUE || range.max() < Integer.MIN_VALUE) {
+                    return 0;
+                }
+                int min = (int) Math.max(range.min(), Integer.MIN_VALUE);
+                int max = (int) Math.min(range.max(), Integer.MAX_VALUE);
+                return vector
+                        ? VectorFilters.between(source, from, to, target, min, max)
+                        : between(source, from, to, target, 0, min, max);
+            }
+            case Modulo modulo when modulo.divisor() > 0xFFFF_FFFFL -> {
+                // wider than any int distance: rare, not worth a kernel
+                return filter(source, from, to, target, (IntPredicate) modulo::test);
+            }
+            case Modulo modulo -> {
+                IntResidue residue = IntResidue.of(modulo);
+                return vector
+                        ? VectorFilters.modulo(source, from, to, target, residue)
+                        : modulo(source, from, to, target, 0, residue);
+            }
+        }
+    }
+
+    private static int filter(long[] source, int from, int to, long[] target, Condition condition, boolean vector) {
+        switch (Objects.requireNonNull(condition)) {
+            case Between range -> {
+                return vector
+                        ? VectorFilters.between(source, from, to, target, range.min(), range.max())
+                        : between(source, from, to, target, 0, range.min(), range.max());
+            }
+            case Modulo modulo -> {
+                LongResidue residue = LongResidue.of(modulo);
+                return vector
+                        ? VectorFilters.modulo(source, from, to, target, residue)
+                        : modulo(source, from, to, target, 0, residue);
+            }
+        }
+    }
+
+    // Scalar loops. Each stores every value and only advances the output index on a
+    // match, so there is no branch to mispredict. They append at target[at] and return
+    // the new end, which lets the vector loops hand them their tail.
+
+    static int between(int[] source, int from, int to, int[] target, int at, int min, int max) {
+        for (int i = from; i < to; i++) {
+            int value = source[i];
+            target[at] = value;
+            at += (value >= min & value <= max) ? 1 : 0;
+        }
+        return at;
+    }
+
+    static int between(long[] source, int from, int to, long[] target, int at, long min, long max) {
+        for (int i = from; i < to; i++) {
+            long value = source[i];
+            target[at] = value;
+            at += (value >= min & value <= max) ? 1 : 0;
+        }
+        return at;
+    }
+
+    static int modulo(int[] source, int from, int to, int[] target, int at, IntResidue residue) {
+        if (residue.powerOfTwo()) {
+            int mask = residue.mask();
+            int remainder = residue.bias();
+            for (int i = from; i < to; i++) {
+                int value = source[i];
+                target[at] = value;
+                at += (value & mask) == remainder ? 1 : 0;
+            }
+            return at;
+        }
+        for (int i = from; i < to; i++) {
+            int value = source[i];
+            target[at] = value;
+            at += residue.test(value) ? 1 : 0;
+        }
+        return at;
+    }
+
+    static int modulo(long[] source, int from, int to, long[] target, int at, LongResidue residue) {
+        if (residue.powerOfTwo()) {
+            long mask = residue.mask();
+            long remainder = residue.bias();
+            for (int i = from; i < to; i++) {
+                long value = source[i];
+                target[at] = value;
+                at += (value & mask) == remainder ? 1 : 0;
+            }
+            return at;
+        }
+        for (int i = from; i < to; i++) {
+            long value = source[i];
+            target[at] = value;
+            at += residue.test(value) ? 1 : 0;
+        }
+        return at;
+    }
+
+    /**
+     * A Modulo prepared for 32-bit values. For a power of two the test is
+     * (value & mask) == bias. Otherwise the value is shifted to unsigned by flipping
+     * the sign bit, which moves its residue by a constant, so the test becomes
+     * "unsigned value - bias is a non-negative multiple of the divisor".
+     */
+    record IntResidue(boolean powerOfTwo, int mask, int bias, int inverse, int shift, int limit) {
+        static IntResidue of(Modulo modulo) {
+            long divisor = modulo.divisor();
+            if (Long.bitCount(divisor) == 1) {
+                return new IntResidue(true, (int) (divisor - 1), (int) modulo.remainder(), 0, 0, 0);
+            }
+            int shift = Long.numberOfTrailingZeros(divisor);
+            long shifted = Math.floorMod((long) Integer.MIN_VALUE, divisor);
+            long bias = Math.floorMod(modulo.remainder() - shifted, divisor);
+            return new IntResidue(false, 0, (int) bias, (int) oddInverse(divisor >>> shift), shift,
+                    (int) (0xFFFF_FFFFL / divisor));
+        }
+
+        boolean test(int value) {
+            if (powerOfTwo) {
+                return (value & mask) == bias;
+            }
+            int unsigned = value ^ Integer.MIN_VALUE;
+            return Integer.compareUnsigned(unsigned, bias) >= 0
+                    && Integer.compareUnsigned(Integer.rotateRight((unsigned - bias) * inverse, shift), limit) <= 0;
+        }
+    }
+
+    /** The same for 64-bit values. */
+    record LongResidue(boolean powerOfTwo, long mask, long bias, long inverse, int shift, long limit) {
+        static LongResidue of(Modulo modulo) {
+            long divisor = modulo.divisor();
+            if (Long.bitCount(divisor) == 1) {
+                return new LongResidue(true, divisor - 1, modulo.remainder(), 0, 0, 0);
+            }
+            int shift = Long.numberOfTrailingZeros(divisor);
+            long shifted = Math.floorMod(Long.MIN_VALUE, divisor);
+            long bias = Math.floorMod(modulo.remainder() - shifted, divisor);
+            return new LongResidue(false, 0, bias, oddInverse(divisor >>> shift), shift,
+                    Long.divideUnsigned(-1L, divisor));
+        }
+
+        boolean test(long value) {
+            if (powerOfTwo) {
+                return (value & mask) == bias;
+            }
+            long unsigned = value ^ Long.MIN_VALUE;
+            return Long.compareUnsigned(unsigned, bias) >= 0
+                    && Long.compareUnsigned(Long.rotateRight((unsigned - bias) * inverse, shift), limit) <= 0;
+        }
+    }
+
+    /**
+     * Multiplicative inverse of an odd number modulo 2^64 by Newton's iteration; each
+     * step doubles the correct low bits, starting from 3.
+     */
+    private static long oddInverse(long odd) {
+        long inverse = odd;
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2 - odd * inverse;
+        }
+        return inverse;
+    }
+
+    private static void checkRange(int sourceLength, int from, int to, int targetLength) {
+        Objects.checkFromToIndex(from, to, sourceLength);
+        if (targetLength < to - from) {
+            throw new IllegalArgumentException("Target holds " + targetLength + " values, need " + (to - from));
+        }
+    }
+
+    private static boolean vectorModulePresent() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    public static void main(String[] args) {
+        System.out.println("Vector API in use: " + vectorized());
+
+        SplittableRandom random = new SplittableRandom(23);
+        int[] ints = new int[10_003];
+        long[] longs = new long[ints.length];
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = i % 7 == 0 ? random.nextInt(-50, 50) : random.nextInt();
+            longs[i] = i % 7 == 0 ? random.nextLong(-50, 50) : random.nextLong();
+        }
+        ints[0] = Integer.MIN_VALUE;
+        ints[1] = Integer.MAX_VALUE;
+        longs[0] = Long.MIN_VALUE;
+        longs[1] = Long.MAX_VALUE;
+
+        Condition[] conditions = {
+                even(), odd(), multipleOf(3), modulo(7, 4), modulo(10, 9), multipleOf(12), modulo(64, 63),
+                multipleOf(1), modulo(0xFFFF_FFFFL, 5), modulo(1L << 33, 3), modulo(Long.MAX_VALUE, 1),
+                between(-40, 40), between(0, Long.MAX_VALUE), between(Integer.MAX_VALUE + 1L, Long.MAX_VALUE)
+        };
+        boolean intsMatch = true;
+        boolean longsMatch = true;
+        for (Condition condition : conditions) {
+            int[] expectedInts = Arrays.stream(ints).filter(value -> condition.test(value)).toArray();
+            int[] scalarInts = new int[ints.length];
+            int scalarCount = filterScalar(ints, 0, ints.length, scalarInts, condition);
+            intsMatch &= Arrays.equals(filter(ints, condition), expectedInts)
+                    && Arrays.equals(Arrays.copyOf(scalarInts, scalarCount), expectedInts);
+
+            long[] expectedLongs = Arrays.stream(longs).filter(condition::test).toArray();
+            long[] scalarLongs = new long[longs.length];
+            int scalarLongCount = filterScalar(longs, 0, longs.length, scalarLongs, condition);
+            longsMatch &= Arrays.equals(filter(longs, condition), expectedLongs)
+                    && Arrays.equals(Arrays.copyOf(scalarLongs, scalarLongCount), expectedLongs);
+        }
+        assertWithPredicate("BulkFilter-intsMatchFloorMod", intsMatch, matched -> matched);
+        assertWithPredicate("BulkFilter-longsMatchFloorMod", longsMatch, matched -> matched);
+
+        int[] inPlace = ints.clone();
+        int evens = filter(inPlace, 5, inPlace.length, inPlace, even());
+        assertWithPredicate("BulkFilter-inPlace", Arrays.copyOf(inPlace, evens),
+                result -> Arrays.equals(result, Arrays.stream(ints, 5, ints.length).filter(v -> v % 2 == 0).toArray()));
+
+        assertWithPredicate("BulkFilter-negativeOdd", filter(new int[] {-3, -2, -1, 0, 1}, odd()),
+                result -> Arrays.equals(result, new int[] {-3, -1, 1}));
+    }
+}
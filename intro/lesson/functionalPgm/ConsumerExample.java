@@ -1,5 +1,6 @@
 package lesson.functionalPgm;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -11,6 +12,13 @@ public class ConsumerExample {
         Consumer<List<String>> consumeMessages = messages -> messages.forEach(s -> System.out.println("Inserting message to DB:: "+ s));
         consumeMessages.accept(List.of("Order 1 received", "Order 5 received"));
 
+        // Row-at-a-time inserts are slow: collect single messages and insert them in batches,
+        // flushed every 100 messages or after 20 ms; close() inserts whatever is left
+        try (BatchingConsumer<String> insertInBatches = BatchingConsumer.of(consumeMessages, 100, Duration.ofMillis(20))) {
+            insertInBatches.accept("Order 7 received");
+            insertInBatches.accept("Order 9 received");
+        }
+
 
         // Creates or Generates
         Supplier<Integer> randomInt = () -> (int)(Math.random() * 1000);
@@ -25,5 +33,9 @@ public class ConsumerExample {
         System.out.println(randomDouble.get());
 
         // How optional uses supplier
+
+        // Compute once, share afterwards: the memoized supplier returns the same random number every time
+        Supplier<Integer> randomOnce = Memoizer.memoize(randomInt);
+        System.out.println(randomOnce.get().equals(randomOnce.get()));
     }
 }
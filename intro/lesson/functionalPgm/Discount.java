@@ -10,8 +10,15 @@ public class Discount {
     static Function<Double, Double> applyJuneDiscount = (price) -> price - (price * 0.05);
     static Function<Double, Double> applySeven7Discount = (price) -> price - (price * 0.05);
 
+    // Same codes as primitive rules: no boxing, and chained codes fold into one multiplier
+    static final DiscountChain juneDiscount = DiscountChain.ofPercentages(5);
+    static final DiscountChain seven7Discount = DiscountChain.ofPercentages(5);
+    static final DiscountChain userDiscount = juneDiscount.then(seven7Discount);
+
     public static void main(String[] args) {
         System.out.println(applyUserDiscount(100.00));
+        System.out.println(applyUserDiscountPrimitive(100.00));
+        System.out.println(userDiscount.applyToCents(10_000) + " cents");
     }
 
     private static Double applyUserDiscount(Double price) {
@@ -19,4 +26,8 @@ public class Discount {
                 .andThen(applySeven7Discount)
                 .apply(price);
     }
+
+    static double applyUserDiscountPrimitive(double price) {
+        return userDiscount.applyAsDouble(price);
+    }
 }
@@ -0,0 +1,76 @@
+package lesson.functionalPgm;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * A chain of percentage discounts folded into one multiplier.
+ *
+ * Taking p% off is multiplying by (1 - p/100), so any number of stacked percentage
+ * discounts is a single multiplication by their product. The product is computed once
+ * when the chain is built; applying it is one multiply on a primitive double, with no
+ * boxing and no lambda per stage. Chains are immutable, so they can be shared between
+ * threads and cached per user.
+ *
+ * applyToCents works in long cents and rounds once, half up, at the end. The double
+ * multiplier is exact to about 1e-16 relative, so results are exact to the cent for
+ * any realistic price. Applying the stages one by one in double arithmetic can differ
+ * from the folded result in the last bit; round to cents when comparing.
+ */
+final class DiscountChain implements DoubleUnaryOperator {
+
+    static final DiscountChain NONE = new DiscountChain(1.0);
+
+    private final double multiplier;
+
+    private DiscountChain(double multiplier) {
+        this.multiplier = multiplier;
+    }
+
+    /**
+     * The percentages applied one after another, e.g. (5, 5) is 5% off and then 5%
+     * off the reduced price.
+     */
+    static DiscountChain ofPercentages(double... percentages) {
+        DiscountChain chain = NONE;
+        for (double percentage : percentages) {
+            chain = chain.then(percentage);
+        }
+        return chain;
+    }
+
+    DiscountChain then(double percentage) {
+        if (!(percentage >= 0 && percentage <= 100)) {
+            throw new IllegalArgumentException("Discount must be between 0 and 100 percent, got " + percentage);
+        }
+        return new DiscountChain(multiplier * (1 - percentage / 100));
+    }
+
+    DiscountChain then(DiscountChain next) {
+        return new DiscountChain(multiplier * next.multiplier);
+    }
+
+    @Override
+    public double applyAsDouble(double price) {
+        return price * multiplier;
+    }
+
+    long applyToCents(long cents) {
+        return Math.round(cents * multiplier);
+    }
+
+    double multiplier() {
+        return multiplier;
+    }
+
+    /**
+     * The total discount in percent, e.g. 9.75 for (5, 5).
+     */
+    double totalPercentage() {
+        return (1 - multiplier) * 100;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DiscountChain[%.4f%% off]", totalPercentage());
+    }
+}
@@ -1,5 +1,6 @@
 package lesson.functionalPgm;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -12,16 +13,32 @@ public class Filter {
         var numbers = IntStream.rangeClosed(0, 10).boxed().toList();
         System.out.println(filterEvenNumbers(numbers));
         System.out.println(filterOddNumbers(numbers));
-        //System.out.println(filterByCondition(numbers, n -> n % 3 == 0));
+        System.out.println(filterByCondition(numbers, n -> n % 3 == 0));
+
+        // the same on a primitive array: no boxing, no predicate call per element
+        int[] values = IntStream.rangeClosed(0, 10).toArray();
+        System.out.println(Arrays.toString(filterEvenNumbers(values)));
+        System.out.println(Arrays.toString(filterOddNumbers(values)));
+        System.out.println(Arrays.toString(BulkFilter.filter(values, BulkFilter.multipleOf(3))));
     }
 
     private static List<Integer> filterEvenNumbers(List<Integer> numbers) {
-        // return numbers.stream().filter(num -> num % 2 == 0).toList();
-        return null;
+        return numbers.stream().filter(num -> num % 2 == 0).toList();
     }
 
     private static List<Integer> filterOddNumbers(List<Integer> numbers) {
-        // return numbers.stream().filter(num -> num % 2 != 0).toList();
-        return null;
+        return numbers.stream().filter(num -> num % 2 != 0).toList();
+    }
+
+    private static List<Integer> filterByCondition(List<Integer> numbers, Predicate<Integer> condition) {
+        return numbers.stream().filter(condition).collect(Collectors.toList());
+    }
+
+    private static int[] filterEvenNumbers(int[] numbers) {
+        return BulkFilter.filter(numbers, BulkFilter.even());
+    }
+
+    private static int[] filterOddNumbers(int[] numbers) {
+        return BulkFilter.filter(numbers, BulkFilter.odd());
     }
 }
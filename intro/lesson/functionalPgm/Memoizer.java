@@ -0,0 +1,467 @@
+package lesson.functionalPgm;
+
+import static exercise.utils.SolutionValidation.assertWithPredicate;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Memoizing wrappers for Supplier, Function and BiFunction.
+ *
+ * - Single flight: when several threads ask for the same missing key at once, one of
+ *   them computes it and the others wait for that result. A failed computation is
+ *   rethrown to every waiter and not cached, so the next call tries again.
+ * - Bounded: with a maximum size, the least recently used entries are evicted. The
+ *   cache is split into segments, each an access-ordered LinkedHashMap with its own
+ *   lock, so eviction is LRU per segment (approximately LRU overall).
+ * - Expiry: with a time to live, an entry is recomputed once it is older than that.
+ * - Statistics: hits, misses, evictions and failed loads, see stats().
+ *
+ * No lock is held while the function runs, and waiting happens on a
+ * CompletableFuture, never in a synchronized block, so virtual threads waiting
+ * for a key park without pinning their carrier thread (JDK 21 pins in monitors).
+ *
+ * A function that asks its own memoized wrapper for the key it is computing would
+ * wait for itself forever; that fails with IllegalStateException instead.
+ */
+final class Memoizer {
+
+    private Memoizer() {
+    }
+
+    /**
+     * Size and expiry limits. The default is unbounded and never expiring.
+     */
+    record CachePolicy(long maximumSize, Duration timeToLive) {
+        static final CachePolicy UNBOUNDED = new CachePolicy(Long.MAX_VALUE, null);
+
+        CachePolicy {
+            if (maximumSize <= 0) {
+                throw new IllegalArgumentException("Maximum size must be positive, got " + maximumSize);
+            }
+            if (timeToLive != null) {
+                requirePositive(timeToLive);
+            }
+        }
+
+        static CachePolicy maximumSize(long maximumSize) {
+            return new CachePolicy(maximumSize, null);
+        }
+
+        CachePolicy expireAfterWrite(Duration timeToLive) {
+            return new CachePolicy(maximumSize, Objects.requireNonNull(timeToLive));
+        }
+
+        boolean bounded() {
+            return maximumSize != Long.MAX_VALUE;
+        }
+    }
+
+    record Stats(long hits, long misses, long evictions, long loadFailures) {
+        double hitRate() {
+            long requests = hits + misses;
+            return requests == 0 ? 1.0 : (double) hits / requests;
+        }
+    }
+
+    static <T> MemoizedSupplier<T> memoize(Supplier<T> supplier) {
+        return new MemoizedSupplier<>(supplier, null);
+    }
+
+    /**
+     * A lazy value that is computed again once it is older than timeToLive.
+     */
+    static <T> MemoizedSupplier<T> memoize(Supplier<T> supplier, Duration timeToLive) {
+        return new MemoizedSupplier<>(supplier, requirePositive(timeToLive));
+    }
+
+    static <K, V> MemoizedFunction<K, V> memoize(Function<K, V> function) {
+        return memoize(function, CachePolicy.UNBOUNDED);
+    }
+
+    static <K, V> MemoizedFunction<K, V> memoize(Function<K, V> function, CachePolicy policy) {
+        return new MemoizedFunction<>(function, policy);
+    }
+
+    static <A, B, V> MemoizedBiFunction<A, B, V> memoize(BiFunction<A, B, V> function) {
+        return memoize(function, CachePolicy.UNBOUNDED);
+    }
+
+    static <A, B, V> MemoizedBiFunction<A, B, V> memoize(BiFunction<A, B, V> function, CachePolicy policy) {
+        return new MemoizedBiFunction<>(function, policy);
+    }
+
+    private static Duration requirePositive(Duration timeToLive) {
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("Time to live must be positive, got " + timeToLive);
+        }
+        return timeToLive;
+    }
+
+    /**
+     * A value being loaded or already loaded, shared by everyone asking for it.
+     */
+    private static final class Load<V> {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        final Thread loader = Thread.currentThread();
+        volatile long loadedAt;
+
+        boolean isFresh(long timeToLiveNanos, long now) {
+            if (!future.isDone()) {
+                return true;
+            }
+            return !future.isCompletedExceptionally() && (timeToLiveNanos == 0 || now - loadedAt < timeToLiveNanos);
+        }
+
+        void run(Supplier<V> computation) {
+            try {
+                V value = computation.get();
+                loadedAt = System.nanoTime();
+                future.complete(value);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+
+        V await() {
+            if (!future.isDone() && loader == Thread.currentThread()) {
+                throw new IllegalStateException("Recursive load: the memoized function asked for its own key");
+            }
+            try {
+                return future.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtime) {
+                    throw runtime;
+                }
+                if (cause instanceof Error error) {
+                    throw error;
+                }
+                throw e;
+            }
+        }
+    }
+
+    static final class MemoizedSupplier<T> implements Supplier<T> {
+        private final Supplier<T> supplier;
+        private final long timeToLiveNanos;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private volatile Load<T> load;
+
+        private MemoizedSupplier(Supplier<T> supplier, Duration timeToLive) {
+            this.supplier = Objects.requireNonNull(supplier);
+            this.timeToLiveNanos = timeToLive == null ? 0 : timeToLive.toNanos();
+        }
+
+        @Override
+        public T get() {
+            Load<T> current = load;
+            // fast path: one volatile read once the value is there
+            if (current != null && current.future.isDone() && current.isFresh(timeToLiveNanos, System.nanoTime())) {
+                hits.increment();
+                return current.await();
+            }
+            Load<T> mine = null;
+            lock.lock();
+            try {
+                current = load;
+                if (current == null || !current.isFresh(timeToLiveNanos, System.nanoTime())) {
+                    mine = new Load<>();
+                    load = current = mine;
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (mine != null) {
+                misses.increment();
+                mine.run(supplier);
+                if (mine.future.isCompletedExceptionally()) {
+                    failures.increment();
+                }
+            } else {
+                hits.increment();
+            }
+            return current.await();
+        }
+
+        /**
+         * Drops the value; the next get computes it again.
+         */
+        void invalidate() {
+            lock.lock();
+            try {
+                load = null;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Stats stats() {
+            return new Stats(hits.sum(), misses.sum(), 0, failures.sum());
+        }
+    }
+
+    static final class MemoizedFunction<K, V> implements Function<K, V> {
+        private static final int MAX_SEGMENTS = 16;
+
+        private final Function<K, V> function;
+        private final long timeToLiveNanos;
+        private final Segment<K, V>[] segments;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private MemoizedFunction(Function<K, V> function, CachePolicy policy) {
+            this.function = Objects.requireNonNull(function);
+            this.timeToLiveNanos = policy.timeToLive() == null ? 0 : policy.timeToLive().toNanos();
+            // small caches get fewer segments so that per-segment LRU stays meaningful
+            int segmentCount = policy.bounded()
+                    ? (int) Math.min(MAX_SEGMENTS, Long.highestOneBit(Math.max(1, policy.maximumSize() / 64)))
+                    : MAX_SEGMENTS;
+            long perSegment = policy.bounded() ? (policy.maximumSize() + segmentCount - 1) / segmentCount : Long.MAX_VALUE;
+            this.segments = new Segment[segmentCount];
+            for (int i = 0; i < segmentCount; i++) {
+                segments[i] = new Segment<>(perSegment);
+            }
+        }
+
+        @Override
+        public V apply(K key) {
+            Segment<K, V> segment = segmentFor(key);
+            Load<V> mine = null;
+            Load<V> current;
+            segment.lock.lock();
+            try {
+                current = segment.entries.get(key);
+                if (current == null || !current.isFresh(timeToLiveNanos, System.nanoTime())) {
+                    mine = new Load<>();
+                    current = mine;
+                    segment.entries.put(key, mine);
+                    evictions.add(segment.evictOverflow());
+                }
+            } finally {
+                segment.lock.unlock();
+            }
+            if (mine == null) {
+                hits.increment();
+                return current.await();
+            }
+            misses.increment();
+            mine.run(() -> function.apply(key));
+            if (mine.future.isCompletedExceptionally()) {
+                failures.increment();
+                segment.remove(key, mine);
+            }
+            return mine.await();
+        }
+
+        void invalidate(K key) {
+            Segment<K, V> segment = segmentFor(key);
+            segment.lock.lock();
+            try {
+                segment.entries.remove(key);
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+
+        void invalidateAll() {
+            for (Segment<K, V> segment : segments) {
+                segment.lock.lock();
+                try {
+                    segment.entries.clear();
+                } finally {
+                    segment.lock.unlock();
+                }
+            }
+        }
+
+        long size() {
+            long size = 0;
+            for (Segment<K, V> segment : segments) {
+                segment.lock.lock();
+                try {
+                    size += segment.entries.size();
+                } finally {
+                    segment.lock.unlock();
+                }
+            }
+            return size;
+        }
+
+        Stats stats() {
+            return new Stats(hits.sum(), misses.sum(), evictions.sum(), failures.sum());
+        }
+
+        private Segment<K, V> segmentFor(K key) {
+            int h = Objects.hashCode(key);
+            h ^= h >>> 16;
+            return segments[(h * 0x9E3779B9 >>> 16) & (segments.length - 1)];
+        }
+    }
+
+    private static final class Segment<K, V> {
+        final ReentrantLock lock = new ReentrantLock();
+        // access order: iteration starts at the least recently used entry
+        final LinkedHashMap<K, Load<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+        final long capacity;
+
+        Segment(long capacity) {
+            this.capacity = capacity;
+        }
+
+        // with the lock held; entries still loading are skipped so their waiters finish
+        int evictOverflow() {
+            int evicted = 0;
+            Iterator<Map.Entry<K, Load<V>>> oldest = entries.entrySet().iterator();
+            while (entries.size() > capacity && oldest.hasNext()) {
+                if (oldest.next().getValue().future.isDone()) {
+                    oldest.remove();
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+
+        void remove(K key, Load<V> load) {
+            lock.lock();
+            try {
+                entries.remove(key, load);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    static final class MemoizedBiFunction<A, B, V> implements BiFunction<A, B, V> {
+        private record Key<A, B>(A first, B second) {
+        }
+
+        private final MemoizedFunction<Key<A, B>, V> memoized;
+
+        private MemoizedBiFunction(BiFunction<A, B, V> function, CachePolicy policy) {
+            Objects.requireNonNull(function);
+            this.memoized = new MemoizedFunction<>(key -> function.apply(key.first(), key.second()), policy);
+        }
+
+        @Override
+        public V apply(A first, B second) {
+            return memoized.apply(new Key<>(first, second));
+        }
+
+        void invalidate(A first, B second) {
+            memoized.invalidate(new Key<>(first, second));
+        }
+
+        long size() {
+            return memoized.size();
+        }
+
+        Stats stats() {
+            return memoized.stats();
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // 10,000 virtual threads ask for the same slow key at once: one load
+        AtomicInteger loads = new AtomicInteger();
+        MemoizedFunction<String, Integer> slowLength = memoize(key -> {
+            loads.incrementAndGet();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return key.length();
+        });
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger wrong = new AtomicInteger();
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 10_000; i++) {
+                threads.submit(() -> {
+                    start.await();
+                    if (slowLength.apply("catalog") != 7) {
+                        wrong.incrementAndGet();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        }
+        assertWithPredicate("Memoizer-singleFlight", loads.get(), count -> count == 1 && wrong.get() == 0);
+        assertWithPredicate("Memoizer-stats", slowLength.stats(),
+                stats -> stats.misses() == 1 && stats.hits() == 9_999);
+
+        MemoizedFunction<Integer, Integer> squares = memoize(x -> x * x, CachePolicy.maximumSize(3));
+        squares.apply(1);
+        squares.apply(2);
+        squares.apply(3);
+        squares.apply(1); // 1 is now the most recently used, 2 the least
+        squares.apply(4);
+        assertWithPredicate("Memoizer-lru", squares.stats(),
+                stats -> stats.evictions() == 1 && squares.size() == 3);
+        squares.apply(1);
+        squares.apply(2);
+        assertWithPredicate("Memoizer-lruKeptRecent", squares.stats(), stats -> stats.hits() == 2 && stats.misses() == 5);
+
+        AtomicInteger version = new AtomicInteger();
+        MemoizedSupplier<Integer> config = memoize(version::incrementAndGet, Duration.ofMillis(50));
+        int first = config.get();
+        int cached = config.get();
+        Thread.sleep(80);
+        int reloaded = config.get();
+        assertWithPredicate("Memoizer-ttl", reloaded, value -> first == 1 && cached == 1 && value == 2);
+
+        AtomicInteger attempts = new AtomicInteger();
+        MemoizedFunction<String, String> flaky = memoize(key -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("backend down");
+            }
+            return key.toUpperCase();
+        });
+        String firstTry;
+        try {
+            firstTry = flaky.apply("id");
+        } catch (IllegalStateException e) {
+            firstTry = e.getMessage();
+        }
+        String secondTry = firstTry;
+        assertWithPredicate("Memoizer-failureNotCached", flaky.apply("id"),
+                value -> secondTry.equals("backend down") && value.equals("ID") && flaky.stats().loadFailures() == 1);
+
+        AtomicReference<MemoizedFunction<Integer, Integer>> selfCalling = new AtomicReference<>();
+        selfCalling.set(memoize(n -> selfCalling.get().apply(n)));
+        String recursion;
+        try {
+            recursion = String.valueOf(selfCalling.get().apply(1));
+        } catch (IllegalStateException e) {
+            recursion = "detected";
+        }
+        assertWithPredicate("Memoizer-recursionDetected", recursion, "detected"::equals);
+
+        MemoizedBiFunction<Double, Double, Double> discount = memoize((price, percent) -> price - price * percent / 100);
+        discount.apply(100.0, 5.0);
+        assertWithPredicate("Memoizer-biFunction", discount.apply(100.0, 5.0),
+                value -> value == 95.0 && discount.stats().hits() == 1);
+    }
+}
@@ -0,0 +1,280 @@
+package lesson.functionalPgm;
+
+import static exercise.utils.SolutionValidation.assertWithPredicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Builder for a chain of map / filter / peek stages, fused into one flat stage array.
+ *
+ * f.andThen(g).andThen(h) nests lambdas: applying it goes through one wrapper frame
+ * per stage, and the call site inside Function.andThen is shared by every chain in
+ * the program, so with chains assembled from configuration it quickly sees too many
+ * types for the JIT to inline. A fused pipeline keeps the stages in an array and runs
+ * them in one loop: the call depth stays at one whatever the length, and the
+ * pipeline itself allocates nothing per call (boxing inside the stages aside). It
+ * pays off on long chains; for two or three stages the JIT inlines andThen anyway.
+ *
+ * A filter that rejects the value short-circuits the rest of the stages, like
+ * Predicate.and does. Adding a pipeline (or a Function built by andThen of fused
+ * pipelines) splices its stages in rather than nesting it.
+ *
+ * allOf and anyOf fuse Predicate chains the same way, stopping at the first false
+ * (or true) just like and/or.
+ */
+final class Pipeline<T, R> {
+
+    private static final byte MAP = 0;
+    private static final byte FILTER = 1;
+    private static final byte PEEK = 2;
+
+    private final List<Object> stages = new ArrayList<>();
+    private final List<Byte> kinds = new ArrayList<>();
+
+    private Pipeline() {
+    }
+
+    static <T> Pipeline<T, T> from() {
+        return new Pipeline<>();
+    }
+
+    @SuppressWarnings("unchecked")
+    <V> Pipeline<T, V> map(Function<? super R, ? extends V> function) {
+        if (function instanceof Fused<?, ?> fused && fused.filters == 0) {
+            return (Pipeline<T, V>) splice(fused);
+        }
+        add(MAP, function);
+        return (Pipeline<T, V>) this;
+    }
+
+    Pipeline<T, R> filter(Predicate<? super R> predicate) {
+        if (predicate instanceof AllOf<?> all) {
+            for (Predicate<?> stage : all.stages) {
+                add(FILTER, stage);
+            }
+            return this;
+        }
+        add(FILTER, predicate);
+        return this;
+    }
+
+    Pipeline<T, R> peek(Consumer<? super R> consumer) {
+        add(PEEK, consumer);
+        return this;
+    }
+
+    /**
+     * Appends every stage of another fused pipeline, filters included.
+     */
+    @SuppressWarnings("unchecked")
+    <V> Pipeline<T, V> then(Fused<? super R, V> next) {
+        return (Pipeline<T, V>) splice(next);
+    }
+
+    Fused<T, R> fuse() {
+        byte[] kindArray = new byte[kinds.size()];
+        for (int i = 0; i < kindArray.length; i++) {
+            kindArray[i] = kinds.get(i);
+        }
+        return new Fused<>(stages.toArray(), kindArray);
+    }
+
+    @SafeVarargs
+    static <T> Predicate<T> allOf(Predicate<? super T>... predicates) {
+        List<Predicate<?>> flat = new ArrayList<>();
+        for (Predicate<? super T> predicate : predicates) {
+            if (predicate instanceof AllOf<?> nested) {
+                flat.addAll(Arrays.asList(nested.stages));
+            } else {
+                flat.add(Objects.requireNonNull(predicate));
+            }
+        }
+        return new AllOf<>(flat.toArray(new Predicate<?>[0]));
+    }
+
+    @SafeVarargs
+    static <T> Predicate<T> anyOf(Predicate<? super T>... predicates) {
+        List<Predicate<?>> flat = new ArrayList<>();
+        for (Predicate<? super T> predicate : predicates) {
+            if (predicate instanceof AnyOf<?> nested) {
+                flat.addAll(Arrays.asList(nested.stages));
+            } else {
+                flat.add(Objects.requireNonNull(predicate));
+            }
+        }
+        return new AnyOf<>(flat.toArray(new Predicate<?>[0]));
+    }
+
+    private void add(byte kind, Object stage) {
+        stages.add(Objects.requireNonNull(stage));
+        kinds.add(kind);
+    }
+
+    private Pipeline<T, ?> splice(Fused<?, ?> fused) {
+        for (int i = 0; i < fused.stages.length; i++) {
+            add(fused.kinds[i], fused.stages[i]);
+        }
+        return this;
+    }
+
+    /**
+     * The fused chain. As a Function it is only usable without filters; with filters
+     * use applyOrElse or applyOptional.
+     */
+    static final class Fused<T, R> implements Function<T, R> {
+        private static final Object REJECTED = new Object();
+
+        private final Object[] stages;
+        private final byte[] kinds;
+        private final int filters;
+
+        private Fused(Object[] stages, byte[] kinds) {
+            this.stages = stages;
+            this.kinds = kinds;
+            int count = 0;
+            for (byte kind : kinds) {
+                if (kind == FILTER) {
+                    count++;
+                }
+            }
+            this.filters = count;
+        }
+
+        /**
+         * Runs every stage; returns rejected as soon as a filter says no.
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        R applyOrElse(T input, R rejected) {
+            Object value = input;
+            Object[] stages = this.stages;
+            byte[] kinds = this.kinds;
+            for (int i = 0; i < stages.length; i++) {
+                switch (kinds[i]) {
+                    case MAP -> value = ((Function) stages[i]).apply(value);
+                    case FILTER -> {
+                        if (!((Predicate) stages[i]).test(value)) {
+                            return rejected;
+                        }
+                    }
+                    default -> ((Consumer) stages[i]).accept(value);
+                }
+            }
+            return (R) value;
+        }
+
+        @SuppressWarnings("unchecked")
+        Optional<R> applyOptional(T input) {
+            R result = applyOrElse(input, (R) REJECTED);
+            return result == REJECTED ? Optional.empty() : Optional.ofNullable(result);
+        }
+
+        @Override
+        public R apply(T input) {
+            if (filters != 0) {
+                throw new IllegalStateException("Pipeline has filters, use applyOrElse or applyOptional");
+            }
+            return applyOrElse(input, null);
+        }
+
+        /**
+         * Runs the stages for their peeks, ignoring the result; a fused Consumer chain.
+         */
+        Consumer<T> toConsumer() {
+            return input -> applyOrElse(input, null);
+        }
+
+        @Override
+        public <V> Function<T, V> andThen(Function<? super R, ? extends V> after) {
+            Pipeline<T, R> pipeline = new Pipeline<>();
+            pipeline.splice(this);
+            Pipeline<T, V> extended = pipeline.map(after);
+            return extended.fuse();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <V> Function<V, R> compose(Function<? super V, ? extends T> before) {
+            Pipeline<V, T> pipeline = Pipeline.<V>from().map(before);
+            return (Function<V, R>) pipeline.splice(this).fuse();
+        }
+
+        int length() {
+            return stages.length;
+        }
+    }
+
+    private record AllOf<T>(Predicate<?>[] stages) implements Predicate<T> {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public boolean test(T value) {
+            for (Predicate stage : stages) {
+                if (!stage.test(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private record AnyOf<T>(Predicate<?>[] stages) implements Predicate<T> {
+        @Override
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        public boolean test(T value) {
+            for (Predicate stage : stages) {
+                if (stage.test(value)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public static void main(String[] args) {
+        Function<Double, Double> square = num -> num * num;
+        Fused<Double, Double> squareTwice = Pipeline.<Double>from().map(square).map(square).fuse();
+        assertWithPredicate("Pipeline-matchesAndThen", squareTwice.apply(5.0),
+                value -> value.equals(square.andThen(square).apply(5.0)));
+
+        assertWithPredicate("Pipeline-compose", squareTwice.compose((Double num) -> num + 1).apply(1.0),
+                value -> value == 16.0);
+
+        Fused<Double, Double> userDiscount = Pipeline.<Double>from()
+                .map(Discount.applyJuneDiscount)
+                .map(Discount.applySeven7Discount)
+                .fuse();
+        Function<Double, Double> spliced = userDiscount.andThen(userDiscount);
+        assertWithPredicate("Pipeline-spliced", spliced,
+                fused -> fused instanceof Fused<?, ?> flat && flat.length() == 4
+                        && fused.apply(100.0).equals(Discount.applyJuneDiscount.andThen(Discount.applySeven7Discount)
+                        .andThen(Discount.applyJuneDiscount).andThen(Discount.applySeven7Discount).apply(100.0)));
+
+        List<String> visited = new ArrayList<>();
+        Fused<String, Integer> lengthOfShortWords = Pipeline.<String>from()
+                .peek(visited::add)
+                .filter(word -> word.length() < 6)
+                .map(String::length)
+                .peek(length -> visited.add("length " + length))
+                .fuse();
+        assertWithPredicate("Pipeline-shortCircuit",
+                List.of(lengthOfShortWords.applyOptional("java"), lengthOfShortWords.applyOptional("functional")),
+                results -> results.equals(List.of(Optional.of(4), Optional.empty()))
+                        && visited.equals(List.of("java", "length 4", "functional")));
+
+        List<String> checked = new ArrayList<>();
+        Predicate<String> notEmpty = text -> checked.add("notEmpty") && !text.isEmpty();
+        Predicate<String> shortText = text -> checked.add("short") && text.length() <= 100;
+        Predicate<String> isValid = allOf(Objects::nonNull, allOf(notEmpty, shortText));
+        boolean emptyIsValid = isValid.test("");
+        assertWithPredicate("Pipeline-allOfShortCircuit", checked,
+                calls -> !emptyIsValid && calls.equals(List.of("notEmpty")) && isValid.test("ok"));
+        assertWithPredicate("Pipeline-anyOf", anyOf(String::isEmpty, (String text) -> text.startsWith("J")).test("Java"),
+                matched -> matched);
+    }
+}
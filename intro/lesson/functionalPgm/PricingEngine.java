@@ -0,0 +1,156 @@
+package lesson.functionalPgm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Batch pricing for many users, each with a stack of percentage discounts.
+ *
+ * Every user gets a dense int id, and their discount list is folded once into one
+ * DiscountChain factor kept in a primitive double[] indexed by that id. Pricing is
+ * then one multiply per user over primitive arrays, split into blocks of users that
+ * run in parallel, instead of reducing a List<Double> with a boxed BiFunction per
+ * user and product.
+ *
+ * When a user's discounts change only that user's factor is recomputed; nothing
+ * else is invalidated. Prices are fixed-point long cents, rounded once.
+ *
+ * Updates are serialized. A batch works on a copy of the factors taken when it
+ * starts, so it is consistent even if discounts change while it runs, and later
+ * updates show up in the next batch.
+ */
+final class PricingEngine {
+
+    static final int BLOCK_USERS = 1 << 14;
+
+    /**
+     * Receives one product's prices for a contiguous block of users. Called from
+     * several threads at once; the array is reused after the call returns.
+     */
+    @FunctionalInterface
+    interface CatalogSink {
+        void accept(int product, int firstUser, long[] cents, int count);
+    }
+
+    private final Map<String, Integer> userIds = new HashMap<>();
+    private final List<String> userNames = new ArrayList<>();
+    private double[] factors = new double[16];
+
+    PricingEngine() {
+    }
+
+    PricingEngine(Map<String, List<Double>> discountsByUser) {
+        discountsByUser.forEach(this::updateDiscounts);
+    }
+
+    /**
+     * Sets a user's discounts, registering the user if new, and refreshes that
+     * user's factor only.
+     */
+    synchronized int updateDiscounts(String user, List<Double> percentages) {
+        DiscountChain chain = DiscountChain.NONE;
+        for (double percentage : percentages) {
+            chain = chain.then(percentage);
+        }
+        Integer id = userIds.get(user);
+        if (id == null) {
+            id = userNames.size();
+            userIds.put(user, id);
+            userNames.add(user);
+            if (id == factors.length) {
+                factors = Arrays.copyOf(factors, factors.length * 2);
+            }
+        }
+        factors[id] = chain.multiplier();
+        return id;
+    }
+
+    /**
+     * Drops a user's discounts; the id stays valid and prices at full price.
+     */
+    synchronized void clearDiscounts(String user) {
+        Integer id = userIds.get(user);
+        if (id != null) {
+            factors[id] = 1.0;
+        }
+    }
+
+    synchronized int userId(String user) {
+        Integer id = userIds.get(user);
+        return id == null ? -1 : id;
+    }
+
+    synchronized String userName(int id) {
+        return userNames.get(id);
+    }
+
+    synchronized int userCount() {
+        return userNames.size();
+    }
+
+    /**
+     * Combined discount factor of the user, 1.0 for unknown users.
+     */
+    synchronized double factor(String user) {
+        Integer id = userIds.get(user);
+        return id == null ? 1.0 : factors[id];
+    }
+
+    /**
+     * One price, rounded to the cent.
+     */
+    double price(String user, double basePrice) {
+        return priceCents(Math.round(basePrice * 100), factor(user)) / 100.0;
+    }
+
+    /**
+     * The product's price for every user, indexed by user id.
+     */
+    long[] priceForAllUsers(long baseCents) {
+        double[] snapshot = snapshot();
+        long[] cents = new long[snapshot.length];
+        blocks(snapshot.length).forEach(block -> {
+            int end = Math.min(snapshot.length, block + BLOCK_USERS);
+            for (int user = block; user < end; user++) {
+                cents[user] = priceCents(baseCents, snapshot[user]);
+            }
+        });
+        return cents;
+    }
+
+    /**
+     * Every product for every user, without building the products x users matrix:
+     * each parallel task prices a block of users and hands one row per product to
+     * the sink.
+     */
+    void priceCatalog(long[] productCents, CatalogSink sink) {
+        double[] snapshot = snapshot();
+        blocks(snapshot.length).forEach(block -> {
+            int count = Math.min(BLOCK_USERS, snapshot.length - block);
+            long[] row = new long[count];
+            for (int product = 0; product < productCents.length; product++) {
+                long base = productCents[product];
+                for (int i = 0; i < count; i++) {
+                    row[i] = priceCents(base, snapshot[block + i]);
+                }
+                sink.accept(product, block, row, count);
+            }
+        });
+    }
+
+    private synchronized double[] snapshot() {
+        return Arrays.copyOf(factors, userNames.size());
+    }
+
+    private static IntStream blocks(int users) {
+        return IntStream.range(0, (users + BLOCK_USERS - 1) / BLOCK_USERS).parallel().map(i -> i * BLOCK_USERS);
+    }
+
+    private static long priceCents(long baseCents, double factor) {
+        return Math.round(baseCents * factor);
+    }
+}